@@ -0,0 +1,220 @@
+import org.eclipse.jgit.dircache.DirCache;
+import org.eclipse.jgit.dircache.DirCacheEditor;
+import org.eclipse.jgit.dircache.DirCacheEntry;
+import org.eclipse.jgit.dircache.DirCacheIterator;
+import org.eclipse.jgit.lib.CommitBuilder;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.FileTreeIterator;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.PathFilterGroup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+// Creates a chain of commits against the index in a single pass. All objects
+// go through one ObjectInserter that is flushed once, HEAD is moved once and
+// the index is written once at the end.
+class BatchCommitter {
+    private final Repository repository;
+    private final List<String> skipped = new ArrayList<>();
+
+    public BatchCommitter(Repository repository) {
+        this.repository = repository;
+    }
+
+    public List<ObjectId> commit(List<BatchEntry> entries) throws IOException {
+        PersonIdent ident = new PersonIdent(repository);
+        ObjectId oldHead = repository.resolve(Constants.HEAD);
+        ObjectId parent = oldHead;
+        ObjectId parentTree = null;
+        if (oldHead != null) {
+            try (RevWalk walk = new RevWalk(repository)) {
+                parentTree = walk.parseCommit(oldHead).getTree();
+            }
+        }
+        List<ObjectId> created = new ArrayList<>();
+        skipped.clear();
+
+        DirCache index = repository.lockDirCache();
+        try (ObjectInserter inserter = repository.newObjectInserter();
+             ObjectReader reader = inserter.newReader()) {
+            for (BatchEntry entry : entries) {
+                DirCacheEditor editor = index.editor();
+                stage(index, editor, reader, inserter, entry.getPaths());
+                editor.finish();
+
+                ObjectId tree = index.writeTree(inserter);
+                if (tree.equals(parentTree)) {
+                    skipped.add(entry.getMessage());
+                    continue;
+                }
+
+                CommitBuilder commit = new CommitBuilder();
+                commit.setTreeId(tree);
+                if (parent != null) {
+                    commit.setParentId(parent);
+                }
+                commit.setAuthor(ident);
+                commit.setCommitter(ident);
+                commit.setMessage(entry.getMessage());
+
+                parent = inserter.insert(commit);
+                parentTree = tree;
+                created.add(parent);
+            }
+            inserter.flush();
+
+            if (!created.isEmpty()) {
+                verify(created);
+                updateHead(oldHead, parent, created.size());
+            }
+            index.write();
+            index.commit();
+        } finally {
+            index.unlock();
+        }
+
+        return created;
+    }
+
+    // Messages of the entries that left the tree unchanged and were not committed
+    public List<String> getSkipped() {
+        return skipped;
+    }
+
+    // Stages paths the way 'git add' does: directories are expanded, files
+    // go through core.autocrlf and clean filters, symlinks store their
+    // target, tracked files missing from the work tree are removed, untracked
+    // ignored files and gitlinks are left alone.
+    private void stage(DirCache index, DirCacheEditor editor, ObjectReader reader,
+                       ObjectInserter inserter, List<String> paths) throws IOException {
+        List<String> filters = new ArrayList<>();
+        for (String path : paths) {
+            while (path.startsWith("./")) path = path.substring(2);
+            while (path.endsWith("/")) path = path.substring(0, path.length() - 1);
+            filters.add(path.equals(".") ? "" : path);
+        }
+        boolean[] matched = new boolean[filters.size()];
+
+        try (TreeWalk walk = new TreeWalk(repository, reader)) {
+            walk.setOperationType(TreeWalk.OperationType.CHECKIN_OP);
+            walk.addTree(new DirCacheIterator(index));
+            FileTreeIterator workTreeIterator = new FileTreeIterator(repository);
+            workTreeIterator.setDirCacheIterator(walk, 0);
+            walk.addTree(workTreeIterator);
+            if (!filters.contains("")) {
+                walk.setFilter(PathFilterGroup.createFromStrings(filters));
+            }
+            walk.setRecursive(true);
+
+            while (walk.next()) {
+                DirCacheIterator cached = walk.getTree(0, DirCacheIterator.class);
+                FileTreeIterator workTree = walk.getTree(1, FileTreeIterator.class);
+                String entryPath = walk.getPathString();
+
+                if (workTree == null) {
+                    editor.add(new DirCacheEditor.DeletePath(entryPath));
+                } else if (cached == null && workTree.isEntryIgnored()) {
+                    continue;
+                } else if (workTree.getEntryFileMode() == FileMode.GITLINK) {
+                    // Submodules and nested repositories keep their recorded commit
+                } else if (cached == null || workTree.isModified(cached.getDirCacheEntry(), true, reader)) {
+                    stageEntry(editor, inserter, entryPath, workTree,
+                            workTree.getIndexFileMode(cached));
+                }
+                markMatched(filters, matched, entryPath);
+            }
+        }
+
+        for (int i = 0; i < matched.length; i++) {
+            if (!matched[i]) {
+                throw new IOException("Path did not match any files: " + filters.get(i));
+            }
+        }
+    }
+
+    private void stageEntry(DirCacheEditor editor, ObjectInserter inserter, String path,
+                            FileTreeIterator workTree, FileMode mode) throws IOException {
+        ObjectId blob;
+        long length = workTree.getEntryContentLength();
+        try (InputStream in = workTree.openEntryStream()) {
+            blob = inserter.insert(Constants.OBJ_BLOB, length, in);
+        }
+        long size = workTree.getEntryLength();
+        Instant lastModified = workTree.getEntryLastModifiedInstant();
+        editor.add(new DirCacheEditor.PathEdit(path) {
+            @Override
+            public void apply(DirCacheEntry ent) {
+                ent.setObjectId(blob);
+                ent.setFileMode(mode);
+                ent.setLength(size);
+                ent.setLastModified(lastModified);
+            }
+        });
+    }
+
+    private void markMatched(List<String> filters, boolean[] matched, String path) {
+        for (int i = 0; i < matched.length; i++) {
+            String filter = filters.get(i);
+            if (filter.isEmpty() || path.equals(filter) || path.startsWith(filter + "/")) {
+                matched[i] = true;
+            }
+        }
+    }
+
+    private void verify(List<ObjectId> created) throws IOException {
+        try (RevWalk walk = new RevWalk(repository)) {
+            for (ObjectId id : created) {
+                RevCommit commit = walk.parseCommit(id);
+                walk.parseBody(commit.getTree());
+            }
+        }
+    }
+
+    private void updateHead(ObjectId oldHead, ObjectId newHead, int count) throws IOException {
+        RefUpdate update = repository.updateRef(Constants.HEAD);
+        update.setExpectedOldObjectId(oldHead != null ? oldHead : ObjectId.zeroId());
+        update.setNewObjectId(newHead);
+        update.setRefLogMessage("commit (batch): " + count + " commits", false);
+
+        RefUpdate.Result result = update.update();
+        switch (result) {
+            case NEW:
+            case FAST_FORWARD:
+            case FORCED:
+                break;
+            default:
+                throw new IOException("Could not update HEAD: " + result);
+        }
+    }
+
+    static class BatchEntry {
+        private final List<String> paths;
+        private final String message;
+
+        public BatchEntry(List<String> paths, String message) {
+            this.paths = paths;
+            this.message = message;
+        }
+
+        public List<String> getPaths() {
+            return paths;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+    }
+}
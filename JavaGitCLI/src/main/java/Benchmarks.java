@@ -0,0 +1,259 @@
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.LogCommand;
+import org.eclipse.jgit.api.StatusCommand;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.util.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+class Benchmarks {
+    private final GitManager gitManager;
+
+    public Benchmarks(GitManager gitManager) {
+        this.gitManager = gitManager;
+    }
+
+    public void run(String[] args) {
+        if (args.length == 0) {
+            System.out.println("Usage: bench <commit|scope|startup> [n]");
+            return;
+        }
+
+        switch (args[0]) {
+            case "commit":
+                benchmarkCommit(args.length > 1 ? Integer.parseInt(args[1]) : 200);
+                break;
+            case "scope":
+                benchmarkScope(args.length > 1 ? Integer.parseInt(args[1]) : 1000);
+                break;
+            case "startup":
+                benchmarkStartup(args.length > 1 ? Integer.parseInt(args[1]) : 5);
+                break;
+            default:
+                System.out.println("Unknown benchmark: " + args[0]);
+        }
+    }
+
+    // Compares repeated add/commit calls with a single BatchCommitter pass
+    private void benchmarkCommit(int count) {
+        File perCommand = null;
+        File batch = null;
+        try {
+            perCommand = Files.createTempDirectory("gitcli-bench").toFile();
+            batch = Files.createTempDirectory("gitcli-bench").toFile();
+
+            long perCommandMs;
+            try (Git git = Git.init().setDirectory(perCommand).call()) {
+                long start = System.nanoTime();
+                for (int i = 0; i < count; i++) {
+                    String path = writeVersionFile(perCommand, i);
+                    git.add().addFilepattern(path).call();
+                    git.commit().setMessage("Bump module-" + i).call();
+                }
+                perCommandMs = (System.nanoTime() - start) / 1_000_000;
+            }
+
+            long batchMs;
+            try (Git git = Git.init().setDirectory(batch).call()) {
+                long start = System.nanoTime();
+                List<BatchCommitter.BatchEntry> entries = new ArrayList<>();
+                for (int i = 0; i < count; i++) {
+                    String path = writeVersionFile(batch, i);
+                    entries.add(new BatchCommitter.BatchEntry(
+                            Collections.singletonList(path), "Bump module-" + i));
+                }
+                new BatchCommitter(git.getRepository()).commit(entries);
+                batchMs = (System.nanoTime() - start) / 1_000_000;
+            }
+
+            System.out.println("=== Commit Benchmark (" + count + " commits) ===");
+            printResult("Per-command", count, perCommandMs);
+            printResult("Batch", count, batchMs);
+        } catch (IOException | GitAPIException e) {
+            System.err.println("Error running benchmark: " + e.getMessage());
+        } finally {
+            deleteQuietly(perCommand);
+            deleteQuietly(batch);
+        }
+    }
+
+    // Times status and a log walk of up to logCount commits over the whole
+    // repository and again restricted to the current scope
+    private void benchmarkScope(int logCount) {
+        Repository repository = gitManager.openRepository();
+        if (repository == null) {
+            System.out.println("Not in a git repository");
+            return;
+        }
+
+        List<String> scope = gitManager.getScope();
+        if (repository.isBare() || scope.isEmpty()) {
+            repository.close();
+            System.out.println("No scope set, use 'scope set <prefix...>' first");
+            return;
+        }
+
+        try (Git git = Git.wrap(repository)) {
+            long fullStatus = bestOf(3, () -> git.status().call());
+            long scopedStatus = bestOf(3, () -> {
+                StatusCommand command = git.status();
+                scope.forEach(command::addPath);
+                command.call();
+            });
+
+            int[] commits = new int[2];
+            long fullLog = bestOf(3, () -> commits[0] = countCommits(git.log().setMaxCount(logCount)));
+            long scopedLog = bestOf(3, () -> {
+                LogCommand command = git.log().setMaxCount(logCount);
+                scope.forEach(command::addPath);
+                commits[1] = countCommits(command);
+            });
+
+            System.out.println("=== Scope Benchmark (" + String.join(", ", scope) + ") ===");
+            System.out.println(String.format("%-8s %10s %10s", "", "full", "scoped"));
+            System.out.println(String.format("%-8s %7d ms %7d ms", "status", fullStatus, scopedStatus));
+            System.out.println(String.format("%-8s %7d ms %7d ms  (%d vs %d commits)",
+                    "log", fullLog, scopedLog, commits[0], commits[1]));
+        } catch (Exception e) {
+            System.err.println("Error running benchmark: " + e.getMessage());
+        } finally {
+            repository.close();
+        }
+    }
+
+    // Starts the tool in a child JVM and times the first prompt and the
+    // prompt after an initial status, with and without the class-data
+    // sharing archive built by the "cds" profile when one is present
+    private void benchmarkStartup(int runs) {
+        String classPath = System.getProperty("java.class.path");
+        File archive = new File(new File(classPath).getAbsoluteFile().getParentFile(), "git-cli-tool.jsa");
+        File home = null;
+        try {
+            home = Files.createTempDirectory("gitcli-bench").toFile();
+
+            System.out.println("=== Startup Benchmark (best of " + runs + ") ===");
+            System.out.println(String.format("%-10s %14s %14s", "", "first prompt", "first status"));
+            printStartup("default", runs, classPath, home, null);
+            if (archive.isFile()) {
+                printStartup("cds", runs, classPath, home, archive);
+            } else {
+                System.out.println("No CDS archive found, build with 'mvn -Pcds package' to compare");
+            }
+        } catch (IOException e) {
+            System.err.println("Error running benchmark: " + e.getMessage());
+        } finally {
+            deleteQuietly(home);
+        }
+    }
+
+    private void printStartup(String label, int runs, String classPath, File home, File archive) throws IOException {
+        long prompt = Long.MAX_VALUE;
+        long status = Long.MAX_VALUE;
+        for (int i = 0; i < runs; i++) {
+            prompt = Math.min(prompt, timeToPrompt(classPath, home, archive, "", 1));
+            status = Math.min(status, timeToPrompt(classPath, home, archive, "status\n", 2));
+        }
+        System.out.println(String.format("%-10s %11d ms %11d ms", label, prompt, status));
+    }
+
+    private long timeToPrompt(String classPath, File home, File archive, String input, int prompts) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(new File(System.getProperty("java.home"), "bin/java").getPath());
+        if (archive != null) {
+            command.add("-XX:SharedArchiveFile=" + archive.getPath());
+        }
+        command.add("-Duser.home=" + home.getPath());
+        command.add("-cp");
+        command.add(classPath);
+        command.add("GitCLITool");
+
+        ProcessBuilder pb = new ProcessBuilder(command);
+        pb.directory(new File(System.getProperty("user.dir")));
+        pb.redirectErrorStream(true);
+
+        long start = System.nanoTime();
+        Process process = pb.start();
+        try {
+            process.getOutputStream().write(input.getBytes(StandardCharsets.UTF_8));
+            process.getOutputStream().flush();
+
+            // The prompt is "[branch] > "
+            InputStream in = process.getInputStream();
+            int seen = 0;
+            int matched = 0;
+            byte[] marker = "] > ".getBytes(StandardCharsets.US_ASCII);
+            int b;
+            while (seen < prompts && (b = in.read()) != -1) {
+                matched = b == marker[matched] ? matched + 1 : (b == marker[0] ? 1 : 0);
+                if (matched == marker.length) {
+                    seen++;
+                    matched = 0;
+                }
+            }
+            long elapsed = (System.nanoTime() - start) / 1_000_000;
+
+            process.getOutputStream().write("exit\n".getBytes(StandardCharsets.UTF_8));
+            process.getOutputStream().close();
+            process.waitFor();
+            return elapsed;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted", e);
+        } finally {
+            process.destroy();
+        }
+    }
+
+    private int countCommits(LogCommand command) throws GitAPIException {
+        int count = 0;
+        for (RevCommit ignored : command.call()) {
+            count++;
+        }
+        return count;
+    }
+
+    private long bestOf(int runs, Task task) throws Exception {
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < runs; i++) {
+            long start = System.nanoTime();
+            task.run();
+            best = Math.min(best, (System.nanoTime() - start) / 1_000_000);
+        }
+        return best;
+    }
+
+    private interface Task {
+        void run() throws Exception;
+    }
+
+    private String writeVersionFile(File root, int module) throws IOException {
+        String path = "module-" + module + "/version.txt";
+        File file = new File(root, path);
+        Files.createDirectories(file.getParentFile().toPath());
+        Files.write(file.toPath(), ("1.0." + module + "\n").getBytes(StandardCharsets.UTF_8));
+        return path;
+    }
+
+    private void printResult(String label, int count, long elapsedMs) {
+        double perSecond = elapsedMs > 0 ? count * 1000.0 / elapsedMs : count;
+        System.out.println(String.format("%-12s %6d ms  %8.1f commits/s", label, elapsedMs, perSecond));
+    }
+
+    private void deleteQuietly(File dir) {
+        if (dir == null) return;
+        try {
+            FileUtils.delete(dir, FileUtils.RECURSIVE | FileUtils.IGNORE_ERRORS);
+        } catch (IOException e) {
+            // Temporary directory, nothing else to do
+        }
+    }
+}
@@ -1,4 +1,5 @@
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.util.*;
 import java.util.concurrent.TimeUnit;
@@ -13,33 +14,77 @@ public class GitCLITool {
     private static final String HISTORY_FILE = System.getProperty("user.home") + "/.gitcli_history";
     private static final String ALIAS_FILE = System.getProperty("user.home") + "/.gitcli_aliases";
     private static final String CONFIG_DIR = System.getProperty("user.home") + "/.gitcli";
+    private static final String SCOPE_FILE = CONFIG_DIR + "/scopes";
 
     private CommandHistory history;
     private AliasManager aliasManager;
+    private ScopeManager scopeManager;
     private GitManager gitManager;
     private FuzzySearcher fuzzySearcher;
+    private Benchmarks benchmarks;
     private Scanner scanner;
     private boolean running;
 
+    // Subsystems are created on first use. The prompt reads HEAD itself, so
+    // JGit is only loaded once a git command runs.
     public GitCLITool() {
-        this.history = new CommandHistory(HISTORY_FILE);
-        this.aliasManager = new AliasManager(ALIAS_FILE);
-        this.gitManager = new GitManager();
         this.fuzzySearcher = new FuzzySearcher();
         this.scanner = new Scanner(System.in);
         this.running = true;
-
-        // Create config directory if it doesn't exist
-        try {
-            Files.createDirectories(Paths.get(CONFIG_DIR));
-        } catch (IOException e) {
-            System.err.println("Warning: Could not create config directory: " + e.getMessage());
-        }
     }
 
+    // With arguments, each one is run as a command and the tool exits
     public static void main(String[] args) {
         GitCLITool tool = new GitCLITool();
-        tool.run();
+        if (args.length > 0) {
+            tool.runCommands(args);
+        } else {
+            tool.run();
+        }
+    }
+
+    public void runCommands(String[] commands) {
+        for (String command : commands) {
+            if (!command.trim().isEmpty()) {
+                processCommand(command.trim());
+            }
+        }
+        saveState();
+    }
+
+    private CommandHistory history() {
+        if (history == null) {
+            history = new CommandHistory(HISTORY_FILE);
+        }
+        return history;
+    }
+
+    private AliasManager aliasManager() {
+        if (aliasManager == null) {
+            aliasManager = new AliasManager(ALIAS_FILE);
+        }
+        return aliasManager;
+    }
+
+    private GitManager gitManager() {
+        if (gitManager == null) {
+            // Create config directory if it doesn't exist
+            try {
+                Files.createDirectories(Paths.get(CONFIG_DIR));
+            } catch (IOException e) {
+                System.err.println("Warning: Could not create config directory: " + e.getMessage());
+            }
+            scopeManager = new ScopeManager(SCOPE_FILE);
+            gitManager = new GitManager(scopeManager);
+        }
+        return gitManager;
+    }
+
+    private Benchmarks benchmarks() {
+        if (benchmarks == null) {
+            benchmarks = new Benchmarks(gitManager());
+        }
+        return benchmarks;
     }
 
     public void run() {
@@ -52,7 +97,7 @@ public class GitCLITool {
             if (input.isEmpty()) continue;
 
             // Add to history
-            history.addCommand(input);
+            history().addCommand(input);
 
             // Process command
             processCommand(input);
@@ -71,11 +116,34 @@ public class GitCLITool {
     }
 
     private String getCurrentBranch() {
+        File directory = gitManager != null
+                ? gitManager.getDirectory() : new File(System.getProperty("user.dir"));
+        String branch = readBranch(new File(directory, ".git"));
+        return branch != null ? "[" + branch + "]" : "[no-git]";
+    }
+
+    // Reads the branch from HEAD without opening the repository. A detached
+    // HEAD shows the commit id, like Repository.getBranch(). Git directories
+    // without their own object database (linked worktrees) cannot be opened
+    // by JGit, so they show as no-git like every other command reports.
+    private String readBranch(File gitDir) {
         try {
-            String branch = gitManager.getCurrentBranch();
-            return branch != null ? "[" + branch + "]" : "[no-git]";
-        } catch (Exception e) {
-            return "[no-git]";
+            if (gitDir.isFile()) {
+                String link = new String(Files.readAllBytes(gitDir.toPath()), StandardCharsets.UTF_8).trim();
+                if (!link.startsWith("gitdir:")) return null;
+                gitDir = gitDir.getParentFile().toPath().resolve(link.substring(7).trim()).toFile();
+            }
+
+            Path head = new File(gitDir, "HEAD").toPath();
+            if (!Files.isRegularFile(head) || !new File(gitDir, "objects").isDirectory()) return null;
+            String content = new String(Files.readAllBytes(head), StandardCharsets.UTF_8).trim();
+            if (content.startsWith("ref:")) {
+                String ref = content.substring(4).trim();
+                return ref.startsWith("refs/heads/") ? ref.substring("refs/heads/".length()) : ref;
+            }
+            return content.isEmpty() ? null : content;
+        } catch (IOException e) {
+            return null;
         }
     }
 
@@ -84,7 +152,7 @@ public class GitCLITool {
         String command = parts[0].toLowerCase();
 
         // Check for alias first
-        String aliasCommand = aliasManager.getAlias(command);
+        String aliasCommand = aliasManager().getAlias(command);
         if (aliasCommand != null) {
             input = aliasCommand + " " + String.join(" ", Arrays.copyOfRange(parts, 1, parts.length));
             parts = input.split("\\s+");
@@ -101,24 +169,27 @@ public class GitCLITool {
                     running = false;
                     break;
                 case "init":
-                    gitManager.initRepository();
+                    gitManager().initRepository();
                     break;
                 case "status":
                 case "st":
-                    gitManager.showStatus();
+                    gitManager().showStatus();
                     break;
                 case "add":
-                    gitManager.addFiles(Arrays.copyOfRange(parts, 1, parts.length));
+                    gitManager().addFiles(Arrays.copyOfRange(parts, 1, parts.length));
                     break;
                 case "commit":
                 case "ci":
-                    gitManager.commit(String.join(" ", Arrays.copyOfRange(parts, 1, parts.length)));
+                    gitManager().commit(String.join(" ", Arrays.copyOfRange(parts, 1, parts.length)));
+                    break;
+                case "batch":
+                    gitManager().batchCommit(parts.length > 1 ? parts[1] : "");
                     break;
                 case "push":
-                    gitManager.push();
+                    gitManager().push();
                     break;
                 case "pull":
-                    gitManager.pull();
+                    gitManager().pull();
                     break;
                 case "branch":
                 case "br":
@@ -126,13 +197,39 @@ public class GitCLITool {
                     break;
                 case "checkout":
                 case "co":
-                    gitManager.checkout(parts.length > 1 ? parts[1] : "");
+                    gitManager().checkout(parts.length > 1 ? parts[1] : "");
                     break;
                 case "log":
-                    gitManager.showLog(parts.length > 1 ? Integer.parseInt(parts[1]) : 10);
+                    gitManager().showLog(parts.length > 1 ? Integer.parseInt(parts[1]) : 10);
                     break;
                 case "diff":
-                    gitManager.showDiff();
+                    gitManager().showDiff();
+                    break;
+                case "clone":
+                    handleCloneCommand(Arrays.copyOfRange(parts, 1, parts.length));
+                    break;
+                case "worktree":
+                    handleWorktreeCommand(Arrays.copyOfRange(parts, 1, parts.length));
+                    break;
+                case "maintenance":
+                case "gc":
+                    handleMaintenanceCommand(Arrays.copyOfRange(parts, 1, parts.length));
+                    break;
+                case "output":
+                    if (parts.length > 1) {
+                        gitManager().setOutputFormat(parts[1].toLowerCase());
+                    } else {
+                        System.out.println("Usage: output <text|jsonl|csv>");
+                    }
+                    break;
+                case "scope":
+                    handleScopeCommand(Arrays.copyOfRange(parts, 1, parts.length));
+                    break;
+                case "ls-files":
+                    gitManager().listIndex(parts.length > 1 ? parts[1] : "");
+                    break;
+                case "bench":
+                    benchmarks().run(Arrays.copyOfRange(parts, 1, parts.length));
                     break;
                 case "history":
                 case "hist":
@@ -170,13 +267,13 @@ public class GitCLITool {
 
     private void handleBranchCommand(String[] args) {
         if (args.length == 0) {
-            gitManager.listBranches();
+            gitManager().listBranches();
         } else {
             switch (args[0]) {
                 case "-c":
                 case "create":
                     if (args.length > 1) {
-                        gitManager.createBranch(args[1]);
+                        gitManager().createBranch(args[1]);
                     } else {
                         System.out.println("Usage: branch create <branch-name>");
                     }
@@ -184,14 +281,82 @@ public class GitCLITool {
                 case "-d":
                 case "delete":
                     if (args.length > 1) {
-                        gitManager.deleteBranch(args[1]);
+                        gitManager().deleteBranch(args[1]);
                     } else {
                         System.out.println("Usage: branch delete <branch-name>");
                     }
                     break;
                 default:
-                    gitManager.listBranches();
+                    gitManager().listBranches();
+            }
+        }
+    }
+
+    private void handleCloneCommand(String[] args) {
+        if (args.length < 2) {
+            System.out.println("Usage: clone <source> <destination> [--shared|--copy]");
+            return;
+        }
+
+        String mode = "hardlink";
+        if (args.length > 2) {
+            switch (args[2]) {
+                case "--shared":
+                    mode = "shared";
+                    break;
+                case "--copy":
+                    mode = "copy";
+                    break;
+                default:
+                    System.out.println("Unknown clone option: " + args[2]);
+                    return;
+            }
+        }
+        gitManager().cloneRepository(args[0], args[1], mode);
+    }
+
+    private void handleWorktreeCommand(String[] args) {
+        if (args.length > 1 && args[0].equals("add")) {
+            gitManager().addWorktree(args[1], args.length > 2 ? args[2] : "");
+        } else {
+            System.out.println("Usage: worktree add <path> [branch]");
+        }
+    }
+
+    private void handleScopeCommand(String[] args) {
+        if (args.length == 0) {
+            gitManager().showScope();
+            return;
+        }
+
+        switch (args[0]) {
+            case "set":
+                gitManager().setScope(Arrays.asList(Arrays.copyOfRange(args, 1, args.length)));
+                break;
+            case "add":
+                List<String> prefixes = new ArrayList<>(gitManager().getScope());
+                prefixes.addAll(Arrays.asList(Arrays.copyOfRange(args, 1, args.length)));
+                gitManager().setScope(prefixes);
+                break;
+            case "clear":
+                gitManager().setScope(Collections.emptyList());
+                break;
+            default:
+                System.out.println("Usage: scope [set|add <prefix...>|clear]");
+        }
+    }
+
+    private void handleMaintenanceCommand(String[] args) {
+        if (args.length == 0 || args[0].equals("stats")) {
+            gitManager().showMaintenanceStats();
+        } else if (args[0].equals("auto")) {
+            if (args.length > 1) {
+                gitManager().setAutoMaintenanceThreshold(args[1].equals("off") ? 0 : Integer.parseInt(args[1]));
+            } else {
+                System.out.println("Usage: maintenance auto <loose-object-threshold|off>");
             }
+        } else {
+            gitManager().runMaintenance(args[0], args.length > 1 ? Integer.parseInt(args[1]) : 0);
         }
     }
 
@@ -202,7 +367,7 @@ public class GitCLITool {
         }
 
         String query = String.join(" ", args);
-        List<String> commands = history.getCommands();
+        List<String> commands = history().getCommands();
         List<String> results = fuzzySearcher.search(query, commands);
 
         if (results.isEmpty()) {
@@ -217,9 +382,9 @@ public class GitCLITool {
 
     private void handleAliasCommand(String[] args) {
         if (args.length == 0) {
-            aliasManager.listAliases();
+            aliasManager().listAliases();
         } else if (args.length == 1) {
-            String alias = aliasManager.getAlias(args[0]);
+            String alias = aliasManager().getAlias(args[0]);
             if (alias != null) {
                 System.out.println(args[0] + " -> " + alias);
             } else {
@@ -228,7 +393,7 @@ public class GitCLITool {
         } else {
             String aliasName = args[0];
             String command = String.join(" ", Arrays.copyOfRange(args, 1, args.length));
-            aliasManager.setAlias(aliasName, command);
+            aliasManager().setAlias(aliasName, command);
             System.out.println("Alias created: " + aliasName + " -> " + command);
         }
     }
@@ -303,7 +468,7 @@ public class GitCLITool {
     }
 
     private void showHistory() {
-        List<String> commands = history.getCommands();
+        List<String> commands = history().getCommands();
         if (commands.isEmpty()) {
             System.out.println("No command history available");
             return;
@@ -322,6 +487,7 @@ public class GitCLITool {
         System.out.println("  status, st          - Show git status");
         System.out.println("  add <files>         - Add files to staging");
         System.out.println("  commit <msg>        - Commit changes");
+        System.out.println("  batch <manifest>    - Commit many changes in one pass");
         System.out.println("  push                - Push to remote");
         System.out.println("  pull                - Pull from remote");
         System.out.println("  branch, br          - List branches");
@@ -329,7 +495,17 @@ public class GitCLITool {
         System.out.println("  branch delete <name> - Delete branch");
         System.out.println("  checkout <branch>   - Switch branch");
         System.out.println("  log [n]             - Show commit log");
+        System.out.println("  clone <src> <dest> [--shared|--copy] - Clone, hardlinking local objects");
+        System.out.println("  worktree add <path> [branch] - Create a linked worktree");
         System.out.println("  diff                - Show differences");
+        System.out.println("  ls-files [prefix]   - List index entries");
+        System.out.println("  output <text|jsonl|csv> - Output format for status, log, branch and diff");
+        System.out.println("  scope               - Show path prefixes status, log and diff are limited to");
+        System.out.println("  scope set|add <prefix...> - Limit status, log and diff to these paths");
+        System.out.println("  scope clear         - Cover the whole repository again");
+        System.out.println("  maintenance, gc     - Show object and pack statistics");
+        System.out.println("  maintenance <task> [threads] - Run gc, repack, prune or pack-refs in background");
+        System.out.println("  maintenance auto <n|off> - Run gc after commits once loose objects exceed n");
 
         System.out.println("\nSystem Commands:");
         System.out.println("  exec <command>      - Execute system command");
@@ -343,14 +519,21 @@ public class GitCLITool {
         System.out.println("  search <query>      - Fuzzy search history");
         System.out.println("  alias               - List aliases");
         System.out.println("  alias <name> <cmd>  - Create alias");
+        System.out.println("  bench <name> [n]    - Run a benchmark (commit, scope, startup)");
         System.out.println("  help                - Show this help");
         System.out.println("  exit, quit          - Exit tool");
     }
 
     private void cleanup() {
         System.out.println("\nSaving configuration...");
-        history.save();
-        aliasManager.save();
+        saveState();
         System.out.println("Goodbye!");
     }
+
+    private void saveState() {
+        if (history != null) history.save();
+        if (aliasManager != null) aliasManager.save();
+        if (scopeManager != null) scopeManager.save();
+        if (gitManager != null) gitManager.shutdown();
+    }
 }
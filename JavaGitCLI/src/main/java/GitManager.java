@@ -1,60 +1,245 @@
 import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.LogCommand;
 import org.eclipse.jgit.api.Status;
+import org.eclipse.jgit.api.StatusCommand;
 import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.dircache.DirCache;
+import org.eclipse.jgit.dircache.DirCacheEntry;
+import org.eclipse.jgit.internal.storage.file.FileRepository;
+import org.eclipse.jgit.internal.storage.file.GC;
+import org.eclipse.jgit.lib.ConfigConstants;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.PersonIdent;
 import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.RefUpdate;
 import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.RepositoryCache;
+import org.eclipse.jgit.lib.StoredConfig;
+import org.eclipse.jgit.lib.TextProgressMonitor;
 import org.eclipse.jgit.revwalk.RevCommit;
 import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.eclipse.jgit.storage.pack.PackConfig;
+import org.eclipse.jgit.util.FS;
+import org.eclipse.jgit.util.FileUtils;
 
+import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 class GitManager {
-    private Git git;
-    private Repository repository;
+    private static final int DEFAULT_AUTO_GC_THRESHOLD = 6700;
+    // Our own key, so turning auto maintenance off here leaves git's gc.auto alone
+    private static final String CONFIG_SECTION = "gitcli";
+    private static final String CONFIG_KEY_AUTO_MAINTENANCE = "autoMaintenance";
+    private static final String[] STATUS_COLUMNS = {"state", "path"};
+    private static final String[] LOG_COLUMNS = {"id", "author", "email", "time", "message"};
+    private static final String[] BRANCH_COLUMNS = {"name", "current", "id"};
+    private static final String[] DIFF_COLUMNS = {"change", "path"};
 
-    public GitManager() {
-        initializeGit();
+    // Repository access model, a lock based adaptation of snapshot reads:
+    // commands that change the repository hold the write side of handleLock,
+    // so they run one at a time and nothing observes them half way through.
+    // Log and branch listing only hold the read side while they pin the
+    // repository handle and resolve HEAD and the branch refs (see Snapshot),
+    // then walk history without the lock. Status, diff and ls-files compare
+    // the index with the live work tree, which cannot be snapshotted, so they
+    // hold the read side for their whole run and writes wait for them. The
+    // lock is fair so a stream of reads cannot starve a waiting write.
+    private final File directory;
+    private volatile Git git;
+    private volatile Repository repository;
+    private final ReadWriteLock handleLock = new ReentrantReadWriteLock(true);
+    private final ExecutorService maintenanceExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "gitcli-maintenance");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile Future<?> maintenanceTask;
+    private final ScopeManager scopeManager;
+    private Writer machineOut;
+    private volatile RecordWriter recordWriter;
+
+    public GitManager(ScopeManager scopeManager) {
+        // user.dir rather than ".", which stays at the launch directory after cd
+        this(scopeManager, new File(System.getProperty("user.dir")));
+    }
+
+    GitManager(ScopeManager scopeManager, File directory) {
+        this.scopeManager = scopeManager;
+        this.directory = directory.toPath().toAbsolutePath().normalize().toFile();
+        this.git = openGit();
+        this.repository = git != null ? git.getRepository() : null;
     }
 
-    private void initializeGit() {
+    private Git openGit() {
         try {
+            // Setting the work tree lets JGit follow a ".git" file to its git
+            // directory; without setMustExist any directory would open as an
+            // empty repository
             FileRepositoryBuilder builder = new FileRepositoryBuilder();
-            repository = builder.setGitDir(new File(".git"))
+            Repository opened = builder.setWorkTree(directory)
                     .readEnvironment()
-                    .findGitDir()
+                    .setMustExist(true)
                     .build();
-            git = new Git(repository);
-        } catch (IOException e) {
+            return new Git(opened);
+        } catch (IOException | IllegalArgumentException e) {
             // Not in a git repository
-            git = null;
-            repository = null;
+            return null;
         }
     }
 
-    public String getCurrentBranch() {
-        if (repository == null) return null;
+    // Opens the repository again and swaps it in once no command is using
+    // the old one. Background maintenance keeps its own reference open.
+    private void reopen() {
+        Git opened = openGit();
+        Git previous;
+        handleLock.writeLock().lock();
+        try {
+            previous = git;
+            git = opened;
+            repository = opened != null ? opened.getRepository() : null;
+        } finally {
+            handleLock.writeLock().unlock();
+        }
+        if (previous != null) {
+            previous.getRepository().close();
+        }
+    }
+
+    private void read(Runnable operation) {
+        handleLock.readLock().lock();
+        try {
+            operation.run();
+        } finally {
+            handleLock.readLock().unlock();
+        }
+    }
+
+    private void write(Runnable operation) {
+        handleLock.writeLock().lock();
+        try {
+            operation.run();
+        } finally {
+            handleLock.writeLock().unlock();
+        }
+    }
+
+    // Pins the current repository and reads HEAD and the branch refs under
+    // the read lock. Returns null outside a repository; callers must close
+    // the snapshot to release the pinned handle.
+    private Snapshot snapshot() throws IOException {
+        handleLock.readLock().lock();
+        try {
+            if (repository == null) return null;
+            Repository pinned = repository;
+            pinned.incrementOpen();
+            try {
+                List<Ref> branches = new ArrayList<>(pinned.getRefDatabase().getRefsByPrefix(Constants.R_HEADS));
+                branches.sort(Comparator.comparing(Ref::getName));
+                return new Snapshot(pinned, pinned.resolve(Constants.HEAD), pinned.getBranch(), branches, getScope());
+            } catch (IOException | RuntimeException e) {
+                pinned.close();
+                throw e;
+            }
+        } finally {
+            handleLock.readLock().unlock();
+        }
+    }
+
+    // The repository as a read found it. Objects never change once written
+    // and the pinned handle stays open across a re-open, so everything
+    // reachable from these ids can be read without holding handleLock.
+    private static class Snapshot implements AutoCloseable {
+        final Repository repository;
+        final ObjectId head;
+        final String branch;
+        final List<Ref> branches;
+        final List<String> scope;
+
+        Snapshot(Repository repository, ObjectId head, String branch, List<Ref> branches, List<String> scope) {
+            this.repository = repository;
+            this.head = head;
+            this.branch = branch;
+            this.branches = branches;
+            this.scope = scope;
+        }
+
+        @Override
+        public void close() {
+            repository.close();
+        }
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
 
+    public String getCurrentBranch() {
+        handleLock.readLock().lock();
         try {
+            if (repository == null) return null;
             return repository.getBranch();
         } catch (IOException e) {
             return null;
+        } finally {
+            handleLock.readLock().unlock();
         }
     }
 
     public void showStatus() {
+        read(() -> doShowStatus());
+    }
+
+    private void doShowStatus() {
         if (git == null) {
             System.out.println("Not in a git repository");
             return;
         }
 
         try {
-            Status status = git.status().call();
+            Status status = scopedStatus().call();
+
+            RecordWriter records = recordWriter;
+            if (records != null) {
+                // Parallel readers share one output stream
+                synchronized (records) {
+                    writeStatusRecords(records, "added", status.getAdded());
+                    writeStatusRecords(records, "changed", status.getChanged());
+                    writeStatusRecords(records, "removed", status.getRemoved());
+                    writeStatusRecords(records, "modified", status.getModified());
+                    writeStatusRecords(records, "missing", status.getMissing());
+                    writeStatusRecords(records, "conflicting", status.getConflicting());
+                    writeStatusRecords(records, "untracked", status.getUntracked());
+                    records.flush();
+                    return;
+                }
+            }
 
             System.out.println("=== Git Status ===");
-            System.out.println("Branch: " + getCurrentBranch());
+            System.out.println("Branch: " + repository.getBranch());
+            printScope();
 
             if (!status.getAdded().isEmpty()) {
                 System.out.println("\nStaged files:");
@@ -75,12 +260,16 @@ class GitManager {
                 System.out.println("Working directory clean");
             }
 
-        } catch (GitAPIException e) {
+        } catch (GitAPIException | IOException e) {
             System.err.println("Error getting status: " + e.getMessage());
         }
     }
 
     public void addFiles(String[] files) {
+        write(() -> doAddFiles(files));
+    }
+
+    private void doAddFiles(String[] files) {
         if (git == null) {
             System.out.println("Not in a git repository");
             return;
@@ -102,6 +291,10 @@ class GitManager {
     }
 
     public void commit(String message) {
+        write(() -> doCommit(message));
+    }
+
+    private void doCommit(String message) {
         if (git == null) {
             System.out.println("Not in a git repository");
             return;
@@ -116,12 +309,68 @@ class GitManager {
             RevCommit commit = git.commit().setMessage(message).call();
             System.out.println("Committed: " + commit.getShortMessage());
             System.out.println("SHA: " + commit.getId().abbreviate(7).name());
+            scheduleAutoMaintenance();
         } catch (GitAPIException e) {
             System.err.println("Error committing: " + e.getMessage());
         }
     }
 
+    public void batchCommit(String manifestFile) {
+        write(() -> doBatchCommit(manifestFile));
+    }
+
+    private void doBatchCommit(String manifestFile) {
+        if (git == null) {
+            System.out.println("Not in a git repository");
+            return;
+        }
+
+        if (manifestFile.isEmpty()) {
+            System.out.println("Manifest file required");
+            return;
+        }
+
+        try {
+            // Each manifest line is "path1,path2=commit message"
+            List<BatchCommitter.BatchEntry> entries = new ArrayList<>();
+            for (String line : Files.readAllLines(Paths.get(manifestFile))) {
+                if (line.trim().isEmpty() || line.startsWith("#") || !line.contains("=")) continue;
+                String[] parts = line.split("=", 2);
+                List<String> paths = new ArrayList<>();
+                for (String path : parts[0].split(",")) {
+                    if (!path.trim().isEmpty()) paths.add(path.trim());
+                }
+                entries.add(new BatchCommitter.BatchEntry(paths, parts[1].trim()));
+            }
+
+            if (entries.isEmpty()) {
+                System.out.println("No commits in manifest");
+                return;
+            }
+
+            long start = System.nanoTime();
+            BatchCommitter committer = new BatchCommitter(repository);
+            List<ObjectId> commits = committer.commit(entries);
+            long elapsed = (System.nanoTime() - start) / 1_000_000;
+
+            System.out.println("Committed " + commits.size() + " commits in " + elapsed + " ms");
+            for (String message : committer.getSkipped()) {
+                System.out.println("Skipped, no changes: " + message);
+            }
+            if (!commits.isEmpty()) {
+                System.out.println("HEAD: " + commits.get(commits.size() - 1).abbreviate(7).name());
+                scheduleAutoMaintenance();
+            }
+        } catch (IOException e) {
+            System.err.println("Error committing batch: " + e.getMessage());
+        }
+    }
+
     public void push() {
+        write(() -> doPush());
+    }
+
+    private void doPush() {
         if (git == null) {
             System.out.println("Not in a git repository");
             return;
@@ -136,6 +385,10 @@ class GitManager {
     }
 
     public void pull() {
+        write(() -> doPull());
+    }
+
+    private void doPull() {
         if (git == null) {
             System.out.println("Not in a git repository");
             return;
@@ -150,14 +403,38 @@ class GitManager {
     }
 
     public void listBranches() {
-        if (git == null) {
-            System.out.println("Not in a git repository");
-            return;
+        try (Snapshot snapshot = snapshot()) {
+            if (snapshot == null) {
+                System.out.println("Not in a git repository");
+                return;
+            }
+            doListBranches(snapshot);
+        } catch (IOException e) {
+            System.err.println("Error listing branches: " + e.getMessage());
         }
+    }
 
+    private void doListBranches(Snapshot snapshot) {
         try {
-            String currentBranch = getCurrentBranch();
-            List<Ref> branches = git.branchList().call();
+            String currentBranch = snapshot.branch;
+            List<Ref> branches = snapshot.branches;
+
+            RecordWriter records = recordWriter;
+            if (records != null) {
+                // Parallel readers share one output stream
+                synchronized (records) {
+                    for (Ref branch : branches) {
+                        String name = Repository.shortenRefName(branch.getName());
+                        records.beginRecord("branch", BRANCH_COLUMNS);
+                        records.value(name);
+                        records.value(name.equals(currentBranch));
+                        records.value(branch.getObjectId());
+                        records.endRecord();
+                    }
+                    records.flush();
+                    return;
+                }
+            }
 
             System.out.println("Branches:");
             for (Ref branch : branches) {
@@ -165,12 +442,16 @@ class GitManager {
                 String marker = name.equals(currentBranch) ? "* " : "  ";
                 System.out.println(marker + name);
             }
-        } catch (GitAPIException e) {
+        } catch (IOException e) {
             System.err.println("Error listing branches: " + e.getMessage());
         }
     }
 
     public void createBranch(String branchName) {
+        write(() -> doCreateBranch(branchName));
+    }
+
+    private void doCreateBranch(String branchName) {
         if (git == null) {
             System.out.println("Not in a git repository");
             return;
@@ -185,6 +466,10 @@ class GitManager {
     }
 
     public void deleteBranch(String branchName) {
+        write(() -> doDeleteBranch(branchName));
+    }
+
+    private void doDeleteBranch(String branchName) {
         if (git == null) {
             System.out.println("Not in a git repository");
             return;
@@ -199,6 +484,10 @@ class GitManager {
     }
 
     public void checkout(String branchName) {
+        write(() -> doCheckout(branchName));
+    }
+
+    private void doCheckout(String branchName) {
         if (git == null) {
             System.out.println("Not in a git repository");
             return;
@@ -218,15 +507,50 @@ class GitManager {
     }
 
     public void showLog(int count) {
-        if (git == null) {
-            System.out.println("Not in a git repository");
-            return;
+        try (Snapshot snapshot = snapshot()) {
+            if (snapshot == null) {
+                System.out.println("Not in a git repository");
+                return;
+            }
+            doShowLog(snapshot, count);
+        } catch (IOException e) {
+            System.err.println("Error showing log: " + e.getMessage());
         }
+    }
 
+    private void doShowLog(Snapshot snapshot, int count) {
         try {
-            Iterable<RevCommit> commits = git.log().setMaxCount(count).call();
+            LogCommand log = Git.wrap(snapshot.repository).log().setMaxCount(count);
+            if (snapshot.head != null) {
+                log.add(snapshot.head);
+            }
+            snapshot.scope.forEach(log::addPath);
+            Iterable<RevCommit> commits = log.call();
+
+            RecordWriter records = recordWriter;
+            if (records != null) {
+                // Parallel readers share one output stream
+                synchronized (records) {
+                    for (RevCommit commit : commits) {
+                        PersonIdent author = commit.getAuthorIdent();
+                        records.beginRecord("commit", LOG_COLUMNS);
+                        records.value(commit);
+                        records.value(author.getName());
+                        records.value(author.getEmailAddress());
+                        records.value(commit.getCommitTime());
+                        records.value(commit.getFullMessage());
+                        records.endRecord();
+                        // The walk keeps every commit it visits; dropping the body
+                        // keeps memory bounded on very long histories
+                        commit.disposeBody();
+                    }
+                    records.flush();
+                    return;
+                }
+            }
 
             System.out.println("=== Commit Log ===");
+            printScope(snapshot.scope);
             for (RevCommit commit : commits) {
                 System.out.println("Commit: " + commit.getId().abbreviate(7).name());
                 System.out.println("Author: " + commit.getAuthorIdent().getName());
@@ -234,23 +558,28 @@ class GitManager {
                 System.out.println("Message: " + commit.getShortMessage());
                 System.out.println();
             }
-        } catch (GitAPIException e) {
+        } catch (GitAPIException | IOException e) {
             System.err.println("Error showing log: " + e.getMessage());
         }
     }
 
     public void initRepository() {
-        try {
-            Git.init().setDirectory(new File(".")).call();
-            System.out.println("Initialized empty Git repository");
-            // Re-initialize after creating repo
-            initializeGit();
-        } catch (GitAPIException e) {
-            System.err.println("Error initializing repository: " + e.getMessage());
-        }
+        write(() -> {
+            try (Git ignored = Git.init().setDirectory(directory).call()) {
+                System.out.println("Initialized empty Git repository");
+                // Re-initialize after creating repo
+                reopen();
+            } catch (GitAPIException e) {
+                System.err.println("Error initializing repository: " + e.getMessage());
+            }
+        });
     }
 
     public void showDiff() {
+        read(() -> doShowDiff());
+    }
+
+    private void doShowDiff() {
         if (git == null) {
             System.out.println("Not in a git repository");
             return;
@@ -258,7 +587,28 @@ class GitManager {
 
         try {
             // This is a simplified diff - in practice you'd want more sophisticated diff display
-            Status status = git.status().call();
+            Status status = scopedStatus().call();
+
+            RecordWriter records = recordWriter;
+            if (records != null) {
+                // Parallel readers share one output stream
+                synchronized (records) {
+                    for (String file : status.getModified()) {
+                        records.beginRecord("change", DIFF_COLUMNS);
+                        records.value("modified");
+                        records.value(file);
+                        records.endRecord();
+                    }
+                    for (String file : status.getAdded()) {
+                        records.beginRecord("change", DIFF_COLUMNS);
+                        records.value("added");
+                        records.value(file);
+                        records.endRecord();
+                    }
+                    records.flush();
+                    return;
+                }
+            }
 
             if (status.getModified().isEmpty() && status.getAdded().isEmpty()) {
                 System.out.println("No changes to show");
@@ -269,8 +619,561 @@ class GitManager {
             status.getModified().forEach(file -> System.out.println("Modified: " + file));
             status.getAdded().forEach(file -> System.out.println("Added: " + file));
 
-        } catch (GitAPIException e) {
+        } catch (GitAPIException | IOException e) {
             System.err.println("Error showing diff: " + e.getMessage());
         }
     }
+
+    // "text" prints human readable output; "jsonl" and "csv" stream one
+    // record per file, commit or branch from status, diff, log and branch
+    public void setOutputFormat(String format) {
+        write(() -> doSetOutputFormat(format));
+    }
+
+    private void doSetOutputFormat(String format) {
+        if (format.equals("text")) {
+            recordWriter = null;
+            System.out.println("Output format: text");
+            return;
+        }
+
+        if (!RecordWriter.isSupported(format)) {
+            System.out.println("Unknown output format: " + format);
+            return;
+        }
+
+        if (machineOut == null) {
+            machineOut = new BufferedWriter(new OutputStreamWriter(
+                    new FileOutputStream(FileDescriptor.out), StandardCharsets.UTF_8), 1 << 16);
+        }
+        recordWriter = RecordWriter.create(format, machineOut);
+        // Keep stdout clean for whatever is reading the records
+        System.err.println("Output format: " + format);
+    }
+
+    private void writeStatusRecords(RecordWriter records, String state, Set<String> files) throws IOException {
+        for (String file : files) {
+            records.beginRecord("status", STATUS_COLUMNS);
+            records.value(state);
+            records.value(file);
+            records.endRecord();
+        }
+    }
+
+    public void showScope() {
+        read(() -> doShowScope());
+    }
+
+    private void doShowScope() {
+        if (repository == null || repository.isBare()) {
+            System.out.println("Not in a git repository");
+            return;
+        }
+
+        List<String> scope = getScope();
+        if (scope.isEmpty()) {
+            System.out.println("No scope set, commands cover the whole repository");
+        } else {
+            System.out.println("Scope:");
+            scope.forEach(prefix -> System.out.println("  " + prefix));
+        }
+    }
+
+    public void setScope(List<String> prefixes) {
+        read(() -> doSetScope(prefixes));
+    }
+
+    private void doSetScope(List<String> prefixes) {
+        if (repository == null || repository.isBare()) {
+            System.out.println("Not in a git repository");
+            return;
+        }
+
+        try {
+            scopeManager.setScope(repository.getWorkTree().getAbsolutePath(), prefixes);
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            return;
+        }
+        doShowScope();
+    }
+
+    List<String> getScope() {
+        Repository current = repository;
+        if (current == null || current.isBare()) return Collections.emptyList();
+        return scopeManager.getScope(current.getWorkTree().getAbsolutePath());
+    }
+
+    // Returns the current repository with its use count raised, so it stays
+    // open across a re-open; the caller must close it. Null outside a repository.
+    Repository openRepository() {
+        handleLock.readLock().lock();
+        try {
+            if (repository != null) repository.incrementOpen();
+            return repository;
+        } finally {
+            handleLock.readLock().unlock();
+        }
+    }
+
+    // StatusCommand and LogCommand turn added paths into a PathFilterGroup,
+    // so subtrees outside the scope are never walked.
+    private StatusCommand scopedStatus() {
+        StatusCommand command = git.status();
+        getScope().forEach(command::addPath);
+        return command;
+    }
+
+
+    private void printScope() {
+        printScope(getScope());
+    }
+
+    private void printScope(List<String> scope) {
+        if (!scope.isEmpty()) {
+            System.out.println("Scope: " + String.join(", ", scope));
+        }
+    }
+
+    public void listIndex(String prefix) {
+        read(() -> doListIndex(prefix));
+    }
+
+    private void doListIndex(String prefix) {
+        if (repository == null) {
+            System.out.println("Not in a git repository");
+            return;
+        }
+
+        try {
+            long start = System.nanoTime();
+            int listed = 0;
+            String reader;
+
+            MappedIndex index = repository.getIndexFile().exists()
+                    ? MappedIndex.open(repository.getIndexFile()) : null;
+            if (index != null) {
+                reader = "mapped v" + index.getVersion();
+                MappedIndex.Entry entry = index.newEntry();
+                for (int i = index.findPrefix(prefix); i < index.getEntryCount(); i++) {
+                    if (!index.startsWith(i, prefix)) break;
+                    entry.moveTo(i);
+                    printIndexEntry(entry.getRawMode(), entry.getObjectId().name(), entry.getStage(), entry.getPath());
+                    listed++;
+                }
+                if (!index.getExtensions().isEmpty()) {
+                    reader += ", skipped extensions " + index.getExtensions();
+                }
+            } else {
+                // Fall back to JGit for index features the mapped reader does
+                // not support, and on Windows
+                reader = "jgit";
+                DirCache dirCache = repository.readDirCache();
+                for (int i = 0; i < dirCache.getEntryCount(); i++) {
+                    DirCacheEntry entry = dirCache.getEntry(i);
+                    if (!entry.getPathString().startsWith(prefix)) continue;
+                    printIndexEntry(entry.getRawMode(), entry.getObjectId().name(), entry.getStage(), entry.getPathString());
+                    listed++;
+                }
+            }
+
+            long elapsed = (System.nanoTime() - start) / 1_000_000;
+            System.out.println(listed + " entries (" + reader + ", " + elapsed + " ms)");
+        } catch (IOException e) {
+            System.err.println("Error reading index: " + e.getMessage());
+        }
+    }
+
+    private void printIndexEntry(int mode, String id, int stage, String path) {
+        System.out.println(String.format("%06o %s %d\t%s", mode, id, stage, path));
+    }
+
+    // Modes are "hardlink" (default), "shared" (objects/info/alternates) or
+    // "copy", which goes through JGit's regular clone for comparison.
+    public void cloneRepository(String source, String destination, String mode) {
+        File target = resolvePath(destination);
+        if (target.exists() && target.list() != null && target.list().length > 0) {
+            System.out.println("Destination is not empty: " + target);
+            return;
+        }
+
+        File sourceDir = resolvePath(source);
+        File sourceGitDir = RepositoryCache.FileKey.resolve(sourceDir, FS.DETECTED);
+        boolean createdTarget = !target.exists();
+        long start = System.nanoTime();
+
+        if (sourceGitDir == null || mode.equals("copy")) {
+            String uri = sourceGitDir != null ? sourceDir.getAbsolutePath() : source;
+            try (Git ignored = Git.cloneRepository().setURI(uri).setDirectory(target).call()) {
+                System.out.println("Cloned " + uri + " into " + target);
+                System.out.println("Total: " + elapsedMillis(start) + " ms (full copy)");
+            } catch (GitAPIException e) {
+                System.err.println("Error cloning: " + e.getMessage());
+                removeClone(target, createdTarget);
+            }
+            return;
+        }
+
+        try (Repository sourceRepo = new FileRepositoryBuilder().setGitDir(sourceGitDir).setMustExist(true).build();
+             Git clone = Git.init().setDirectory(target).call()) {
+            Repository targetRepo = clone.getRepository();
+            LocalCloner cloner = new LocalCloner(sourceRepo, targetRepo);
+
+            long phase = System.nanoTime();
+            if (mode.equals("shared")) {
+                cloner.shareObjects();
+                System.out.println("Objects: shared via alternates (" + elapsedMillis(phase) + " ms)");
+            } else {
+                cloner.linkObjects();
+                System.out.println("Objects: " + cloner.getLinked() + " linked, " + cloner.getCopied()
+                        + " copied (" + elapsedMillis(phase) + " ms)");
+            }
+
+            phase = System.nanoTime();
+            ObjectId head = cloner.copyRefs(sourceDir.getAbsolutePath());
+            System.out.println("Refs: " + elapsedMillis(phase) + " ms");
+
+            if (head != null) {
+                phase = System.nanoTime();
+                int threads = Runtime.getRuntime().availableProcessors();
+                RevCommit commit = targetRepo.parseCommit(head);
+                int files = new ParallelCheckout(targetRepo, threads).checkout(commit.getTree());
+                System.out.println("Checkout: " + files + " files on " + threads + " threads ("
+                        + elapsedMillis(phase) + " ms)");
+            }
+
+            System.out.println("Cloned " + sourceDir + " into " + target);
+            System.out.println("Total: " + elapsedMillis(start) + " ms (" + mode + ")");
+        } catch (IOException | GitAPIException e) {
+            System.err.println("Error cloning: " + e.getMessage());
+            removeClone(target, createdTarget);
+        }
+    }
+
+    // Removes what a failed clone left behind: the whole destination if
+    // this command created it, otherwise only its contents
+    private void removeClone(File target, boolean createdTarget) {
+        try {
+            if (createdTarget) {
+                FileUtils.delete(target, FileUtils.RECURSIVE | FileUtils.IGNORE_ERRORS);
+                return;
+            }
+            File[] children = target.listFiles();
+            if (children != null) {
+                for (File child : children) {
+                    FileUtils.delete(child, FileUtils.RECURSIVE | FileUtils.IGNORE_ERRORS);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Warning: Could not clean up " + target + ": " + e.getMessage());
+        }
+    }
+
+    // Creates a linked worktree in git's on-disk layout. JGit cannot open
+    // linked worktrees itself, so they are meant for use with command line git.
+    public void addWorktree(String path, String branchName) {
+        write(() -> doAddWorktree(path, branchName));
+    }
+
+    private void doAddWorktree(String path, String branchName) {
+        if (repository == null || repository.isBare()) {
+            System.out.println("Not in a git repository");
+            return;
+        }
+
+        File workTree = resolvePath(path);
+        if (workTree.exists() && workTree.list() != null && workTree.list().length > 0) {
+            System.out.println("Destination is not empty: " + workTree);
+            return;
+        }
+
+        String name = workTree.getName();
+        String branch = branchName.isEmpty() ? name : branchName;
+        File adminDir = new File(repository.getDirectory(), "worktrees/" + name);
+        if (adminDir.exists()) {
+            System.out.println("Worktree already exists: " + name);
+            return;
+        }
+
+        boolean createdBranch = false;
+        boolean createdWorkTree = !workTree.exists();
+        try {
+            String checkedOut = findCheckout(Constants.R_HEADS + branch);
+            if (checkedOut != null) {
+                System.out.println("Branch '" + branch + "' is already checked out at " + checkedOut);
+                return;
+            }
+
+            long start = System.nanoTime();
+            ObjectId head;
+            Ref existing = repository.exactRef(Constants.R_HEADS + branch);
+            if (existing != null) {
+                head = existing.getObjectId();
+            } else {
+                head = repository.resolve(Constants.HEAD);
+                if (head == null) {
+                    System.out.println("Cannot create a worktree before the first commit");
+                    return;
+                }
+                RefUpdate update = repository.updateRef(Constants.R_HEADS + branch);
+                update.setNewObjectId(head);
+                update.setExpectedOldObjectId(ObjectId.zeroId());
+                update.setRefLogMessage("worktree add: created from HEAD", false);
+                RefUpdate.Result result = update.update();
+                if (result != RefUpdate.Result.NEW) {
+                    System.err.println("Error adding worktree: could not create branch " + branch + ": " + result);
+                    return;
+                }
+                createdBranch = true;
+            }
+
+            Files.createDirectories(adminDir.toPath());
+            Files.createDirectories(workTree.toPath());
+            File dotGit = new File(workTree, Constants.DOT_GIT);
+            writeLine(new File(adminDir, Constants.HEAD), "ref: " + Constants.R_HEADS + branch);
+            writeLine(new File(adminDir, "commondir"), "../..");
+            writeLine(new File(adminDir, "gitdir"), dotGit.getAbsolutePath());
+            writeLine(dotGit, "gitdir: " + adminDir.getAbsolutePath());
+
+            int threads = Runtime.getRuntime().availableProcessors();
+            RevCommit commit = repository.parseCommit(head);
+            int files;
+            try (Repository linked = new FileRepositoryBuilder().setGitDir(repository.getDirectory())
+                    .setWorkTree(workTree).setIndexFile(new File(adminDir, "index")).setMustExist(true).build()) {
+                files = new ParallelCheckout(linked, threads).checkout(commit.getTree());
+            }
+
+            System.out.println("Created worktree " + workTree + " on branch " + branch);
+            System.out.println("Checkout: " + files + " files on " + threads + " threads ("
+                    + elapsedMillis(start) + " ms)");
+        } catch (IOException e) {
+            System.err.println("Error adding worktree: " + e.getMessage());
+            removeWorktree(adminDir, createdWorkTree ? workTree : null, createdBranch ? branch : null);
+        }
+    }
+
+    // Returns where the branch is checked out, in the main work tree or in
+    // one of the linked worktrees, or null if it is not checked out anywhere
+    private String findCheckout(String refName) throws IOException {
+        if (refName.equals(repository.getFullBranch())) {
+            return String.valueOf(repository.getWorkTree());
+        }
+
+        File[] worktrees = new File(repository.getDirectory(), "worktrees").listFiles(File::isDirectory);
+        if (worktrees == null) {
+            return null;
+        }
+        for (File adminDir : worktrees) {
+            File head = new File(adminDir, Constants.HEAD);
+            if (!head.isFile()) continue;
+            String content = new String(Files.readAllBytes(head.toPath()), StandardCharsets.UTF_8).trim();
+            if (content.equals("ref: " + refName)) {
+                File gitdir = new File(adminDir, "gitdir");
+                return gitdir.isFile()
+                        ? new File(new String(Files.readAllBytes(gitdir.toPath()), StandardCharsets.UTF_8).trim()).getParent()
+                        : adminDir.getName();
+            }
+        }
+        return null;
+    }
+
+    private void removeWorktree(File adminDir, File workTree, String branch) {
+        try {
+            FileUtils.delete(adminDir, FileUtils.RECURSIVE | FileUtils.IGNORE_ERRORS);
+            if (workTree != null) {
+                FileUtils.delete(workTree, FileUtils.RECURSIVE | FileUtils.IGNORE_ERRORS);
+            }
+            if (branch != null) {
+                RefUpdate delete = repository.updateRef(Constants.R_HEADS + branch);
+                delete.setForceUpdate(true);
+                delete.delete();
+            }
+        } catch (IOException e) {
+            System.err.println("Warning: Could not clean up worktree: " + e.getMessage());
+        }
+    }
+
+    private File resolvePath(String path) {
+        return Paths.get(System.getProperty("user.dir")).resolve(path).normalize().toFile();
+    }
+
+    private void writeLine(File file, String line) throws IOException {
+        Files.write(file.toPath(), (line + "\n").getBytes(StandardCharsets.UTF_8));
+    }
+
+    private long elapsedMillis(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+    public void showMaintenanceStats() {
+        read(() -> doShowMaintenanceStats());
+    }
+
+    private void doShowMaintenanceStats() {
+        if (!(repository instanceof FileRepository)) {
+            System.out.println("Not in a git repository");
+            return;
+        }
+
+        try {
+            GC.RepoStatistics stats = new GC((FileRepository) repository).getStatistics();
+            System.out.println("=== Repository Statistics ===");
+            printStatistics(stats);
+            System.out.println("Auto maintenance threshold: " + describeThreshold(getAutoMaintenanceThreshold()));
+            if (isMaintenanceRunning()) {
+                System.out.println("Maintenance is running in the background");
+            }
+        } catch (IOException e) {
+            System.err.println("Error reading repository statistics: " + e.getMessage());
+        }
+    }
+
+    // Tasks are "gc" (repack, prune and pack-refs), "repack", "prune" or "pack-refs"
+    public void runMaintenance(String task, int threads) {
+        write(() -> doRunMaintenance(task, threads));
+    }
+
+    private void doRunMaintenance(String task, int threads) {
+        if (!(repository instanceof FileRepository)) {
+            System.out.println("Not in a git repository");
+            return;
+        }
+
+        switch (task) {
+            case "gc":
+            case "repack":
+            case "prune":
+            case "pack-refs":
+                break;
+            default:
+                System.out.println("Unknown maintenance task: " + task);
+                return;
+        }
+
+        if (isMaintenanceRunning()) {
+            System.out.println("Maintenance is already running");
+            return;
+        }
+
+        FileRepository target = (FileRepository) repository;
+        int processors = Runtime.getRuntime().availableProcessors();
+        int packThreads = threads > 0 ? Math.min(threads, processors) : Math.max(1, processors / 2);
+        // Hold the repository open even if it is swapped out by a re-open
+        target.incrementOpen();
+        maintenanceTask = maintenanceExecutor.submit(() -> {
+            try {
+                maintain(target, task, packThreads);
+            } finally {
+                target.close();
+            }
+        });
+        System.out.println("Started " + task + " in the background (" + packThreads + " threads)");
+    }
+
+    public void setAutoMaintenanceThreshold(int threshold) {
+        write(() -> doSetAutoMaintenanceThreshold(threshold));
+    }
+
+    private void doSetAutoMaintenanceThreshold(int threshold) {
+        if (repository == null) {
+            System.out.println("Not in a git repository");
+            return;
+        }
+
+        try {
+            StoredConfig config = repository.getConfig();
+            config.setInt(CONFIG_SECTION, null, CONFIG_KEY_AUTO_MAINTENANCE, threshold);
+            config.save();
+            System.out.println("Auto maintenance threshold: " + describeThreshold(threshold));
+        } catch (IOException e) {
+            System.err.println("Error saving configuration: " + e.getMessage());
+        }
+    }
+
+    public void shutdown() {
+        if (isMaintenanceRunning()) {
+            System.out.println("Waiting for maintenance to finish...");
+        }
+        maintenanceExecutor.shutdown();
+        try {
+            maintenanceExecutor.awaitTermination(10, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void maintain(FileRepository target, String task, int threads) {
+        try {
+            GC gc = new GC(target);
+            PackConfig packConfig = new PackConfig(target);
+            packConfig.setThreads(threads);
+            gc.setPackConfig(packConfig);
+            gc.setProgressMonitor(new TextProgressMonitor());
+
+            GC.RepoStatistics before = gc.getStatistics();
+            long start = System.nanoTime();
+            switch (task) {
+                case "gc":
+                    gc.gc().get();
+                    break;
+                case "repack":
+                    gc.repack();
+                    break;
+                case "prune":
+                    gc.prune(Collections.emptySet());
+                    break;
+                case "pack-refs":
+                    gc.packRefs();
+                    break;
+            }
+            long elapsed = (System.nanoTime() - start) / 1_000_000;
+            GC.RepoStatistics after = gc.getStatistics();
+
+            System.out.println("\n=== Maintenance: " + task + " (" + elapsed + " ms) ===");
+            System.out.println("Before:");
+            printStatistics(before);
+            System.out.println("After:");
+            printStatistics(after);
+        } catch (IOException | ParseException | ExecutionException e) {
+            System.err.println("Error running " + task + ": " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void scheduleAutoMaintenance() {
+        int threshold = getAutoMaintenanceThreshold();
+        if (threshold <= 0 || isMaintenanceRunning()) return;
+
+        // Estimate loose objects from a single fan-out directory, as git does
+        File[] sample = new File(repository.getDirectory(), "objects/17").listFiles();
+        long estimate = sample != null ? sample.length * 256L : 0;
+        if (estimate >= threshold) {
+            System.out.println("About " + estimate + " loose objects, starting maintenance");
+            doRunMaintenance("gc", 0);
+        }
+    }
+
+    // Until set with "maintenance auto", follows git's gc.auto
+    private int getAutoMaintenanceThreshold() {
+        StoredConfig config = repository.getConfig();
+        int gcAuto = config.getInt(ConfigConstants.CONFIG_GC_SECTION,
+                ConfigConstants.CONFIG_KEY_AUTO, DEFAULT_AUTO_GC_THRESHOLD);
+        return config.getInt(CONFIG_SECTION, CONFIG_KEY_AUTO_MAINTENANCE, gcAuto);
+    }
+
+    private boolean isMaintenanceRunning() {
+        return maintenanceTask != null && !maintenanceTask.isDone();
+    }
+
+    private String describeThreshold(int threshold) {
+        return threshold > 0 ? threshold + " loose objects" : "off";
+    }
+
+    private void printStatistics(GC.RepoStatistics stats) {
+        System.out.println("  Loose objects:  " + stats.numberOfLooseObjects + " (" + stats.sizeOfLooseObjects / 1024 + " KB)");
+        System.out.println("  Packed objects: " + stats.numberOfPackedObjects + " in " + stats.numberOfPackFiles
+                + " packs (" + stats.sizeOfPackedObjects / 1024 + " KB)");
+        System.out.println("  Refs:           " + stats.numberOfLooseRefs + " loose, " + stats.numberOfPackedRefs + " packed");
+    }
 }
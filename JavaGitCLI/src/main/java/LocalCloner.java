@@ -0,0 +1,132 @@
+import org.eclipse.jgit.lib.BatchRefUpdate;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.StoredConfig;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.transport.ReceiveCommand;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Populates a freshly initialised repository from a repository on the same
+// machine without going through a transport: objects are hardlinked (or
+// referenced through objects/info/alternates) and refs are written directly.
+class LocalCloner {
+    private final Repository source;
+    private final Repository target;
+    private int linked;
+    private int copied;
+
+    public LocalCloner(Repository source, Repository target) {
+        this.source = source;
+        this.target = target;
+    }
+
+    public int getLinked() {
+        return linked;
+    }
+
+    public int getCopied() {
+        return copied;
+    }
+
+    // Hardlinks every object and pack file, copying only where the file
+    // system refuses links (for example across devices).
+    public void linkObjects() throws IOException {
+        Path from = new File(source.getDirectory(), "objects").toPath();
+        Path to = new File(target.getDirectory(), "objects").toPath();
+
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(from)) {
+            files = walk.filter(Files::isRegularFile).collect(Collectors.toList());
+        }
+
+        for (Path file : files) {
+            Path relative = from.relativize(file);
+            Path destination = to.resolve(relative);
+            Files.createDirectories(destination.getParent());
+
+            // Files under info/ (alternates, packs) may be edited in place
+            if (!relative.startsWith("info")) {
+                try {
+                    Files.createLink(destination, file);
+                    linked++;
+                    continue;
+                } catch (IOException | UnsupportedOperationException e) {
+                    // Fall through to a plain copy
+                }
+            }
+            Files.copy(file, destination, StandardCopyOption.REPLACE_EXISTING);
+            copied++;
+        }
+    }
+
+    public void shareObjects() throws IOException {
+        File alternates = new File(target.getDirectory(), "objects/info/alternates");
+        Files.createDirectories(alternates.getParentFile().toPath());
+        String objects = new File(source.getDirectory(), "objects").getAbsolutePath();
+        Files.write(alternates.toPath(), Collections.singletonList(objects), StandardCharsets.UTF_8);
+    }
+
+    // Mirrors branches as refs/remotes/origin/*, copies tags and checks out
+    // the source's current branch. Returns the commit HEAD now points at.
+    public ObjectId copyRefs(String url) throws IOException {
+        BatchRefUpdate batch = target.getRefDatabase().newBatchUpdate();
+        for (Ref ref : source.getRefDatabase().getRefsByPrefix(Constants.R_HEADS)) {
+            if (ref.isSymbolic() || ref.getObjectId() == null) continue;
+            String name = Constants.R_REMOTES + "origin/" + ref.getName().substring(Constants.R_HEADS.length());
+            batch.addCommand(new ReceiveCommand(ObjectId.zeroId(), ref.getObjectId(), name));
+        }
+        for (Ref ref : source.getRefDatabase().getRefsByPrefix(Constants.R_TAGS)) {
+            if (ref.isSymbolic() || ref.getObjectId() == null) continue;
+            batch.addCommand(new ReceiveCommand(ObjectId.zeroId(), ref.getObjectId(), ref.getName()));
+        }
+
+        Ref head = source.exactRef(Constants.HEAD);
+        ObjectId headId = head != null ? head.getObjectId() : null;
+        String branch = head != null && head.isSymbolic()
+                ? Repository.shortenRefName(head.getTarget().getName()) : null;
+        if (headId != null && branch != null) {
+            batch.addCommand(new ReceiveCommand(ObjectId.zeroId(), headId, Constants.R_HEADS + branch));
+        }
+
+        batch.setRefLogMessage("clone: from " + url, false);
+        try (RevWalk walk = new RevWalk(target)) {
+            batch.execute(walk, null);
+        }
+        for (ReceiveCommand command : batch.getCommands()) {
+            if (command.getResult() != ReceiveCommand.Result.OK) {
+                throw new IOException("Could not create " + command.getRefName() + ": " + command.getResult());
+            }
+        }
+
+        StoredConfig config = target.getConfig();
+        config.setString("remote", "origin", "url", url);
+        config.setString("remote", "origin", "fetch", "+refs/heads/*:refs/remotes/origin/*");
+        if (branch != null) {
+            config.setString("branch", branch, "remote", "origin");
+            config.setString("branch", branch, "merge", Constants.R_HEADS + branch);
+        }
+        config.save();
+
+        if (branch != null) {
+            target.updateRef(Constants.HEAD).link(Constants.R_HEADS + branch);
+        } else if (headId != null) {
+            RefUpdate update = target.updateRef(Constants.HEAD, true);
+            update.setNewObjectId(headId);
+            update.forceUpdate();
+        }
+        return headId;
+    }
+}
@@ -0,0 +1,251 @@
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.util.SystemReader;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Read-only view of .git/index backed by a memory mapped file, used by
+// ls-files. Entries are never copied onto the heap; only their offsets are
+// kept so prefix lookups can binary search the mapped bytes directly.
+// Optional extensions (TREE, UNTR, ...) are skipped and only their
+// signatures are recorded. Status, add and diff go through JGit, which
+// reads the whole index into a DirCache.
+class MappedIndex {
+    private static final int SIGNATURE = 0x44495243; // "DIRC"
+    private static final int HEADER_SIZE = 12;
+    private static final int ENTRY_FIXED_SIZE = 62;
+    private static final int ENTRY_MIN_SIZE = 64;
+    private static final int TRAILER_SIZE = 20;
+    private static final int FLAG_EXTENDED = 0x4000;
+    private static final int NAME_MASK = 0xfff;
+    private static final int STAGE_SHIFT = 12;
+
+    private final MappedByteBuffer buffer;
+    private final int version;
+    private final int[] offsets;
+    private final int[] nameOffsets;
+    private final int[] nameLengths;
+    private final List<String> extensions;
+
+    private MappedIndex(MappedByteBuffer buffer, int version, int[] offsets,
+                        int[] nameOffsets, int[] nameLengths, List<String> extensions) {
+        this.buffer = buffer;
+        this.version = version;
+        this.offsets = offsets;
+        this.nameOffsets = nameOffsets;
+        this.nameLengths = nameLengths;
+        this.extensions = extensions;
+    }
+
+    // Returns null when the index uses a feature this reader does not handle
+    // but JGit does (version 4 path compression), in which case callers
+    // should fall back to JGit's DirCache. Required extensions that neither
+    // reader handles, such as split index ("link") or sparse directories
+    // ("sdir"), are reported as an IOException.
+    //
+    // Also returns null on Windows: a mapping is only released when the
+    // buffer is garbage collected, and Windows refuses to replace a mapped
+    // file, which would break the next index.lock rename.
+    static MappedIndex open(File indexFile) throws IOException {
+        if (SystemReader.getInstance().isWindows()) {
+            return null;
+        }
+
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(indexFile.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE + TRAILER_SIZE || size > Integer.MAX_VALUE) {
+                return null;
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+
+        if (buffer.getInt(0) != SIGNATURE) {
+            throw new IOException("Not a git index file: " + indexFile);
+        }
+
+        int version = buffer.getInt(4);
+        if (version != 2 && version != 3) {
+            return null;
+        }
+
+        int count = buffer.getInt(8);
+        int end = buffer.capacity() - TRAILER_SIZE;
+        if (count < 0 || count > (end - HEADER_SIZE) / ENTRY_MIN_SIZE) {
+            throw new IOException("Corrupt git index, bad entry count " + count + ": " + indexFile);
+        }
+        int[] offsets = new int[count];
+        int[] nameOffsets = new int[count];
+        int[] nameLengths = new int[count];
+
+        int position = HEADER_SIZE;
+        for (int i = 0; i < count; i++) {
+            if (position + ENTRY_FIXED_SIZE > end) {
+                throw new IOException("Truncated git index: " + indexFile);
+            }
+
+            int flags = buffer.getShort(position + 60) & 0xffff;
+            int nameStart = position + ENTRY_FIXED_SIZE;
+            if ((flags & FLAG_EXTENDED) != 0) {
+                nameStart += 2;
+            }
+
+            int nameLength = flags & NAME_MASK;
+            if (nameLength == NAME_MASK) {
+                nameLength = 0;
+                while (nameStart + nameLength < end && buffer.get(nameStart + nameLength) != 0) {
+                    nameLength++;
+                }
+            }
+            if (nameStart + nameLength >= end) {
+                throw new IOException("Truncated git index: " + indexFile);
+            }
+
+            offsets[i] = position;
+            nameOffsets[i] = nameStart;
+            nameLengths[i] = nameLength;
+
+            // Entries are NUL padded to a multiple of eight bytes
+            int entryLength = nameStart - position + nameLength;
+            position += (entryLength + 8) & ~7;
+        }
+
+        List<String> extensions = new ArrayList<>();
+        while (position + 8 <= end) {
+            byte[] signature = new byte[4];
+            for (int i = 0; i < 4; i++) {
+                signature[i] = buffer.get(position + i);
+            }
+            String name = new String(signature, StandardCharsets.US_ASCII);
+            int length = buffer.getInt(position + 4);
+            if (length < 0 || length > end - position - 8) {
+                throw new IOException("Corrupt git index, bad extension " + name + ": " + indexFile);
+            }
+
+            // Upper case signatures are optional and may be ignored; lower
+            // case ones (such as "link" and "sdir") change how entries must
+            // be interpreted.
+            if (signature[0] < 'A' || signature[0] > 'Z') {
+                throw new IOException("Index extension '" + name + "' is not supported"
+                        + (name.equals("link") ? ", run 'git update-index --no-split-index'" : ""));
+            }
+
+            extensions.add(name);
+            position += 8 + length;
+        }
+
+        return new MappedIndex(buffer, version, offsets, nameOffsets, nameLengths,
+                Collections.unmodifiableList(extensions));
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public int getEntryCount() {
+        return offsets.length;
+    }
+
+    public List<String> getExtensions() {
+        return extensions;
+    }
+
+    public Entry newEntry() {
+        return new Entry();
+    }
+
+    // Returns the position of the first entry whose path is not less than prefix
+    public int findPrefix(String prefix) {
+        return lowerBound(prefix.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public boolean startsWith(int index, String prefix) {
+        byte[] key = prefix.getBytes(StandardCharsets.UTF_8);
+        if (nameLengths[index] < key.length) {
+            return false;
+        }
+        int start = nameOffsets[index];
+        for (int i = 0; i < key.length; i++) {
+            if (buffer.get(start + i) != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int lowerBound(byte[] key) {
+        int low = 0;
+        int high = offsets.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compare(mid, key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int compare(int index, byte[] key) {
+        int start = nameOffsets[index];
+        int length = nameLengths[index];
+        int common = Math.min(length, key.length);
+        for (int i = 0; i < common; i++) {
+            int a = buffer.get(start + i) & 0xff;
+            int b = key[i] & 0xff;
+            if (a != b) {
+                return a - b;
+            }
+        }
+        return length - key.length;
+    }
+
+    // Flyweight cursor over a single entry; reposition it with moveTo
+    // instead of allocating one object per entry.
+    class Entry {
+        private int index = -1;
+
+        public Entry moveTo(int index) {
+            this.index = index;
+            return this;
+        }
+
+        public String getPath() {
+            byte[] name = new byte[nameLengths[index]];
+            int start = nameOffsets[index];
+            for (int i = 0; i < name.length; i++) {
+                name[i] = buffer.get(start + i);
+            }
+            return new String(name, StandardCharsets.UTF_8);
+        }
+
+        public int getRawMode() {
+            return buffer.getInt(offsets[index] + 24);
+        }
+
+        public long getLength() {
+            return buffer.getInt(offsets[index] + 36) & 0xffffffffL;
+        }
+
+        public int getStage() {
+            return ((buffer.getShort(offsets[index] + 60) & 0xffff) >>> STAGE_SHIFT) & 0x3;
+        }
+
+        public ObjectId getObjectId() {
+            byte[] raw = new byte[20];
+            int start = offsets[index] + 40;
+            for (int i = 0; i < raw.length; i++) {
+                raw[i] = buffer.get(start + i);
+            }
+            return ObjectId.fromRaw(raw);
+        }
+    }
+}
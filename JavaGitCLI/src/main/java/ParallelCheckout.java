@@ -0,0 +1,116 @@
+import org.eclipse.jgit.dircache.DirCache;
+import org.eclipse.jgit.dircache.DirCacheBuilder;
+import org.eclipse.jgit.dircache.DirCacheCheckout;
+import org.eclipse.jgit.dircache.DirCacheCheckout.CheckoutMetadata;
+import org.eclipse.jgit.dircache.DirCacheEntry;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.TreeWalk.OperationType;
+import org.eclipse.jgit.treewalk.WorkingTreeOptions;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Writes a tree into the repository's empty work tree using a pool of
+// threads, each with its own ObjectReader, then builds the matching index.
+// Files go through JGit's checkout, so autocrlf, eol attributes and smudge
+// filters are applied the same way as in a regular checkout.
+class ParallelCheckout {
+    private final Repository repository;
+    private final int threads;
+
+    public ParallelCheckout(Repository repository, int threads) {
+        this.repository = repository;
+        this.threads = Math.max(1, threads);
+    }
+
+    public int checkout(ObjectId treeId) throws IOException {
+        File workTree = repository.getWorkTree();
+        List<DirCacheEntry> entries = new ArrayList<>();
+        List<CheckoutMetadata> metadata = new ArrayList<>();
+        Set<File> directories = new HashSet<>();
+        try (TreeWalk walk = new TreeWalk(repository)) {
+            walk.setOperationType(OperationType.CHECKOUT_OP);
+            walk.addTree(treeId);
+            walk.setRecursive(true);
+            while (walk.next()) {
+                DirCacheEntry entry = new DirCacheEntry(walk.getRawPath());
+                entry.setFileMode(walk.getFileMode(0));
+                entry.setObjectId(walk.getObjectId(0));
+                entries.add(entry);
+                metadata.add(new CheckoutMetadata(walk.getEolStreamType(OperationType.CHECKOUT_OP),
+                        walk.getFilterCommand(Constants.ATTR_FILTER_TYPE_SMUDGE)));
+
+                File parent = new File(workTree, walk.getPathString()).getParentFile();
+                if (directories.add(parent)) {
+                    Files.createDirectories(parent.toPath());
+                }
+            }
+        }
+
+        WorkingTreeOptions options = repository.getConfig().get(WorkingTreeOptions.KEY);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> tasks = new ArrayList<>();
+            int chunk = (entries.size() + threads - 1) / threads;
+            for (int start = 0; start < entries.size(); start += chunk) {
+                int from = start;
+                int to = Math.min(start + chunk, entries.size());
+                tasks.add(executor.submit(() -> {
+                    writeEntries(entries.subList(from, to), metadata.subList(from, to), options);
+                    return null;
+                }));
+            }
+            for (Future<?> task : tasks) {
+                task.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Checkout interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Checkout failed: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            executor.shutdown();
+        }
+
+        DirCache index = DirCache.lock(repository.getIndexFile(), repository.getFS());
+        try {
+            DirCacheBuilder builder = index.builder();
+            entries.forEach(builder::add);
+            builder.finish();
+            index.write();
+            index.commit();
+        } finally {
+            index.unlock();
+        }
+
+        return entries.size();
+    }
+
+    private void writeEntries(List<DirCacheEntry> entries, List<CheckoutMetadata> metadata,
+                              WorkingTreeOptions options) throws IOException {
+        try (ObjectReader reader = repository.newObjectReader()) {
+            for (int i = 0; i < entries.size(); i++) {
+                DirCacheEntry entry = entries.get(i);
+                if (entry.getFileMode() == FileMode.GITLINK) {
+                    Files.createDirectories(new File(repository.getWorkTree(), entry.getPathString()).toPath());
+                    continue;
+                }
+                DirCacheCheckout.checkoutEntry(repository, entry, reader, false, metadata.get(i), options);
+            }
+        }
+    }
+}
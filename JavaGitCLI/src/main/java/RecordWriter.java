@@ -0,0 +1,251 @@
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.Constants;
+
+import java.io.IOException;
+import java.io.Writer;
+
+// Streams records straight to a Writer, one field at a time, so commands can
+// emit machine readable output without building a string per record. A
+// record is started with its type and column names and then receives one
+// value per column, in order. Instances are reused across commands.
+abstract class RecordWriter {
+    protected final Writer out;
+    protected final char[] scratch = new char[Constants.OBJECT_ID_STRING_LENGTH];
+    private String[] columns;
+    private int column;
+
+    protected RecordWriter(Writer out) {
+        this.out = out;
+    }
+
+    static RecordWriter create(String format, Writer out) {
+        switch (format) {
+            case "jsonl":
+                return new JsonLinesWriter(out);
+            case "csv":
+                return new CsvWriter(out);
+            default:
+                return null;
+        }
+    }
+
+    static boolean isSupported(String format) {
+        return format.equals("jsonl") || format.equals("csv");
+    }
+
+    public void beginRecord(String type, String[] columns) throws IOException {
+        boolean changed = this.columns != columns;
+        this.columns = columns;
+        this.column = 0;
+        begin(type, columns, changed);
+    }
+
+    public void value(CharSequence value) throws IOException {
+        separator(columns[column++]);
+        if (value == null) {
+            writeNull();
+        } else {
+            writeString(value);
+        }
+    }
+
+    public void value(long value) throws IOException {
+        separator(columns[column++]);
+        writeNumber(value);
+    }
+
+    public void value(boolean value) throws IOException {
+        separator(columns[column++]);
+        out.write(value ? "true" : "false");
+    }
+
+    public void value(AnyObjectId id) throws IOException {
+        separator(columns[column++]);
+        if (id == null) {
+            writeNull();
+            return;
+        }
+        writeId(id);
+    }
+
+    public void endRecord() throws IOException {
+        end();
+        out.write('\n');
+    }
+
+    // Ends a command's output; the next record starts a fresh CSV header
+    public void flush() throws IOException {
+        columns = null;
+        out.flush();
+    }
+
+    protected abstract void begin(String type, String[] columns, boolean newColumns) throws IOException;
+
+    protected abstract void separator(String name) throws IOException;
+
+    protected abstract void writeString(CharSequence value) throws IOException;
+
+    protected abstract void writeNull() throws IOException;
+
+    protected abstract void writeId(AnyObjectId id) throws IOException;
+
+    protected abstract void end() throws IOException;
+
+    protected void writeNumber(long value) throws IOException {
+        if (value == 0) {
+            out.write('0');
+            return;
+        }
+        if (value < 0) {
+            out.write('-');
+            if (value == Long.MIN_VALUE) {
+                out.write("9223372036854775808");
+                return;
+            }
+            value = -value;
+        }
+        char[] digits = scratch;
+        int position = digits.length;
+        while (value > 0) {
+            digits[--position] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        out.write(digits, position, digits.length - position);
+    }
+
+    // {"type":"commit","id":"...",...}
+    static class JsonLinesWriter extends RecordWriter {
+        private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+        JsonLinesWriter(Writer out) {
+            super(out);
+        }
+
+        @Override
+        protected void begin(String type, String[] columns, boolean newColumns) throws IOException {
+            out.write("{\"type\":");
+            writeString(type);
+        }
+
+        @Override
+        protected void separator(String name) throws IOException {
+            out.write(',');
+            writeString(name);
+            out.write(':');
+        }
+
+        @Override
+        protected void writeString(CharSequence value) throws IOException {
+            out.write('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                switch (c) {
+                    case '"':
+                        out.write("\\\"");
+                        break;
+                    case '\\':
+                        out.write("\\\\");
+                        break;
+                    case '\n':
+                        out.write("\\n");
+                        break;
+                    case '\r':
+                        out.write("\\r");
+                        break;
+                    case '\t':
+                        out.write("\\t");
+                        break;
+                    default:
+                        if (c < 0x20) {
+                            out.write("\\u00");
+                            out.write(HEX[c >> 4]);
+                            out.write(HEX[c & 0xf]);
+                        } else {
+                            out.write(c);
+                        }
+                }
+            }
+            out.write('"');
+        }
+
+        @Override
+        protected void writeNull() throws IOException {
+            out.write("null");
+        }
+
+        @Override
+        protected void writeId(AnyObjectId id) throws IOException {
+            out.write('"');
+            id.copyTo(scratch, out);
+            out.write('"');
+        }
+
+        @Override
+        protected void end() throws IOException {
+            out.write('}');
+        }
+    }
+
+    // RFC 4180 style rows with a header line whenever the record shape changes
+    static class CsvWriter extends RecordWriter {
+        CsvWriter(Writer out) {
+            super(out);
+        }
+
+        @Override
+        protected void begin(String type, String[] columns, boolean newColumns) throws IOException {
+            if (newColumns) {
+                out.write("type");
+                for (String column : columns) {
+                    out.write(',');
+                    writeString(column);
+                }
+                out.write('\n');
+            }
+            writeString(type);
+        }
+
+        @Override
+        protected void separator(String name) throws IOException {
+            out.write(',');
+        }
+
+        @Override
+        protected void writeString(CharSequence value) throws IOException {
+            boolean quote = false;
+            for (int i = 0; i < value.length() && !quote; i++) {
+                char c = value.charAt(i);
+                quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+            }
+
+            if (!quote) {
+                out.append(value);
+                return;
+            }
+
+            out.write('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"') {
+                    out.write('"');
+                }
+                out.write(c);
+            }
+            out.write('"');
+        }
+
+        @Override
+        protected void writeNull() {
+            // Empty cell
+        }
+
+        @Override
+        protected void writeId(AnyObjectId id) throws IOException {
+            id.copyTo(scratch, out);
+        }
+
+        @Override
+        protected void end() {
+        }
+    }
+}
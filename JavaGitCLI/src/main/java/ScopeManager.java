@@ -0,0 +1,105 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+// Path prefixes that status, log and diff are limited to, keyed by the
+// repository's work tree so each repository keeps its own scope.
+class ScopeManager {
+    private Map<String, List<String>> scopes;
+    private String scopeFile;
+
+    public ScopeManager(String scopeFile) {
+        this.scopeFile = scopeFile;
+        this.scopes = new ConcurrentHashMap<>();
+        load();
+    }
+
+    public List<String> getScope(String repository) {
+        return scopes.getOrDefault(key(repository), Collections.emptyList());
+    }
+
+    // Prefixes are relative to the work tree. A prefix naming the root (".")
+    // covers the whole repository and clears the scope; absolute paths and
+    // ".." segments are rejected with an IllegalArgumentException.
+    public void setScope(String repository, List<String> prefixes) {
+        List<String> normalized = new ArrayList<>();
+        boolean wholeRepository = false;
+        for (String prefix : prefixes) {
+            String path = normalizePrefix(prefix);
+            if (path.isEmpty()) {
+                wholeRepository = true;
+            } else if (!normalized.contains(path)) {
+                normalized.add(path);
+            }
+        }
+
+        if (wholeRepository || normalized.isEmpty()) {
+            scopes.remove(key(repository));
+        } else {
+            scopes.put(key(repository), normalized);
+        }
+    }
+
+    private String normalizePrefix(String prefix) {
+        String path = prefix.trim().replace('\\', '/');
+        if (path.startsWith("/") || path.matches("^[A-Za-z]:.*")) {
+            throw new IllegalArgumentException("Scope must be relative to the repository: " + prefix);
+        }
+
+        List<String> segments = new ArrayList<>();
+        for (String segment : path.split("/")) {
+            if (segment.isEmpty() || segment.equals(".")) continue;
+            if (segment.equals("..")) {
+                throw new IllegalArgumentException("Scope cannot leave the repository: " + prefix);
+            }
+            segments.add(segment);
+        }
+        return String.join("/", segments);
+    }
+
+    // "/repo", "/repo/" and "/repo/." all name the same work tree
+    private String key(String repository) {
+        return Paths.get(repository).toAbsolutePath().normalize().toString();
+    }
+
+    private void load() {
+        try {
+            Path path = Paths.get(scopeFile);
+            if (Files.exists(path)) {
+                List<String> lines = Files.readAllLines(path);
+                for (String line : lines) {
+                    if (line.contains("=")) {
+                        String[] parts = line.split("=", 2);
+                        try {
+                            setScope(parts[0].trim(), Arrays.asList(parts[1].split(",")));
+                        } catch (IllegalArgumentException e) {
+                            System.err.println("Warning: Ignoring scope for " + parts[0].trim() + ": " + e.getMessage());
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Warning: Could not load scopes: " + e.getMessage());
+        }
+    }
+
+    public void save() {
+        try {
+            List<String> lines = scopes.entrySet().stream()
+                    .map(entry -> entry.getKey() + "=" + String.join(",", entry.getValue()))
+                    .collect(Collectors.toList());
+            Files.createDirectories(Paths.get(scopeFile).getParent());
+            Files.write(Paths.get(scopeFile), lines);
+        } catch (IOException e) {
+            System.err.println("Warning: Could not save scopes: " + e.getMessage());
+        }
+    }
+}
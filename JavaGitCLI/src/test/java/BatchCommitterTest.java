@@ -0,0 +1,110 @@
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.dircache.DirCache;
+import org.eclipse.jgit.dircache.DirCacheEntry;
+import org.eclipse.jgit.lib.ConfigConstants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.StoredConfig;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BatchCommitterTest {
+
+    @TempDir
+    File root;
+
+    @Test
+    void stagesLikeGitAdd() throws Exception {
+        File batchDir = new File(root, "batch");
+        File addDir = new File(root, "add");
+        for (File dir : Arrays.asList(batchDir, addDir)) {
+            try (Git git = init(dir)) {
+                StoredConfig config = git.getRepository().getConfig();
+                config.setString(ConfigConstants.CONFIG_CORE_SECTION, null, ConfigConstants.CONFIG_KEY_AUTOCRLF, "true");
+                config.save();
+                write(dir, ".gitignore", "*.log\n");
+                write(dir, "docs/readme.txt", "line one\r\nline two\r\n");
+                write(dir, "docs/debug.log", "ignored\n");
+                write(dir, "src/Main.java", "class Main {}\n");
+                Files.createSymbolicLink(new File(dir, "src/link").toPath(), Paths.get("Main.java"));
+                Files.createSymbolicLink(new File(dir, "top-link").toPath(), Paths.get("docs"));
+            }
+        }
+
+        List<BatchCommitter.BatchEntry> entries = Arrays.asList(
+                new BatchCommitter.BatchEntry(Arrays.asList(".gitignore", "docs/", "src"), "Add files"),
+                new BatchCommitter.BatchEntry(Collections.singletonList("top-link"), "Add link"));
+        try (Git git = Git.open(batchDir)) {
+            assertEquals(2, new BatchCommitter(git.getRepository()).commit(entries).size());
+        }
+        try (Git git = Git.open(addDir)) {
+            git.add().addFilepattern(".gitignore").addFilepattern("docs").addFilepattern("src")
+                    .addFilepattern("top-link").call();
+        }
+
+        DirCache batched = DirCache.read(new File(batchDir, ".git/index"), null);
+        DirCache added = DirCache.read(new File(addDir, ".git/index"), null);
+        assertEquals(added.getEntryCount(), batched.getEntryCount());
+        for (int i = 0; i < added.getEntryCount(); i++) {
+            DirCacheEntry expected = added.getEntry(i);
+            DirCacheEntry actual = batched.getEntry(i);
+            assertEquals(expected.getPathString(), actual.getPathString());
+            assertEquals(expected.getObjectId(), actual.getObjectId());
+            assertEquals(expected.getFileMode(), actual.getFileMode());
+        }
+        assertNull(batched.getEntry("docs/debug.log"));
+        assertEquals(FileMode.SYMLINK, batched.getEntry("src/link").getFileMode());
+    }
+
+    @Test
+    void skipsUnchangedAndRemovesMissing() throws Exception {
+        try (Git git = init(root)) {
+            write(root, "a/one.txt", "1\n");
+            write(root, "a/two.txt", "2\n");
+            BatchCommitter committer = new BatchCommitter(git.getRepository());
+            committer.commit(Collections.singletonList(
+                    new BatchCommitter.BatchEntry(Collections.singletonList("a"), "Add a")));
+
+            Files.delete(new File(root, "a/two.txt").toPath());
+            List<ObjectId> created = committer.commit(Arrays.asList(
+                    new BatchCommitter.BatchEntry(Collections.singletonList("a/one.txt"), "Nothing changed"),
+                    new BatchCommitter.BatchEntry(Collections.singletonList("a"), "Remove two")));
+
+            assertEquals(1, created.size());
+            assertEquals(Collections.singletonList("Nothing changed"), committer.getSkipped());
+            assertNull(git.getRepository().readDirCache().getEntry("a/two.txt"));
+            assertEquals("Remove two", git.log().setMaxCount(1).call().iterator().next().getFullMessage());
+
+            assertThrows(IOException.class, () -> committer.commit(Collections.singletonList(
+                    new BatchCommitter.BatchEntry(Collections.singletonList("missing"), "Bad path"))));
+        }
+    }
+
+    private Git init(File dir) throws Exception {
+        Git git = Git.init().setDirectory(dir).setInitialBranch("master").call();
+        StoredConfig config = git.getRepository().getConfig();
+        config.setString(ConfigConstants.CONFIG_USER_SECTION, null, ConfigConstants.CONFIG_KEY_NAME, "Test");
+        config.setString(ConfigConstants.CONFIG_USER_SECTION, null, ConfigConstants.CONFIG_KEY_EMAIL, "test@example.com");
+        config.save();
+        return git;
+    }
+
+    private void write(File dir, String path, String content) throws IOException {
+        File file = new File(dir, path);
+        Files.createDirectories(file.getParentFile().toPath());
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+}
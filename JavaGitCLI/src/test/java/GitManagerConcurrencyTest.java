@@ -0,0 +1,146 @@
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Hammers one GitManager from many threads with a mix of reads, commits,
+// branch changes, checkouts and re-opens, then checks that every write
+// landed and nothing was reported on stderr
+class GitManagerConcurrencyTest {
+    private static final int THREADS = 8;
+    private static final int OPERATIONS = 60;
+
+    @TempDir
+    File root;
+
+    private final ByteArrayOutputStream errors = new ByteArrayOutputStream();
+    private PrintStream out;
+    private PrintStream err;
+    private GitManager manager;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        try (Git git = Git.init().setDirectory(root).setInitialBranch("master").call()) {
+            writeVersionFile(0);
+            git.add().addFilepattern(".").call();
+            git.commit().setMessage("Initial commit").call();
+        }
+        manager = new GitManager(new ScopeManager(new File(root, ".git/scopes").getPath()), root);
+
+        out = System.out;
+        err = System.err;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        System.setErr(new PrintStream(errors, true));
+    }
+
+    @AfterEach
+    void tearDown() {
+        System.setOut(out);
+        System.setErr(err);
+        manager.shutdown();
+    }
+
+    @Test
+    void concurrentCommandsKeepRepositoryConsistent() throws Exception {
+        AtomicInteger commits = new AtomicInteger();
+        AtomicInteger created = new AtomicInteger();
+        AtomicInteger deleted = new AtomicInteger();
+        AtomicInteger checkouts = new AtomicInteger();
+
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> tasks = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            tasks.add(pool.submit(() -> {
+                Random random = new Random(thread);
+                List<String> branches = new ArrayList<>();
+                for (int i = 0; i < OPERATIONS; i++) {
+                    int choice = random.nextInt(20);
+                    if (choice < 10) {
+                        switch (choice % 4) {
+                            case 0:
+                                manager.showStatus();
+                                break;
+                            case 1:
+                                manager.showLog(20);
+                                break;
+                            case 2:
+                                manager.listBranches();
+                                break;
+                            default:
+                                manager.listIndex("");
+                        }
+                    } else if (choice < 14) {
+                        String path = writeVersionFile(thread + 1);
+                        manager.addFiles(new String[]{path});
+                        manager.commit("Stress " + thread + "-" + i);
+                        commits.incrementAndGet();
+                    } else if (choice < 16) {
+                        String branch = "stress-" + thread + "-" + i;
+                        manager.createBranch(branch);
+                        branches.add(branch);
+                        created.incrementAndGet();
+                    } else if (choice < 17 && !branches.isEmpty()) {
+                        manager.deleteBranch(branches.remove(branches.size() - 1));
+                        deleted.incrementAndGet();
+                    } else if (choice < 19) {
+                        // Switching to other branches would move where commits
+                        // land, so re-check out the current one
+                        manager.checkout("master");
+                        checkouts.incrementAndGet();
+                    } else {
+                        manager.initRepository();
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> task : tasks) {
+            task.get();
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(1, TimeUnit.MINUTES));
+
+        assertEquals("", errors.toString(StandardCharsets.UTF_8));
+        assertTrue(checkouts.get() > 0);
+        try (Git git = Git.open(root)) {
+            int history = 0;
+            for (RevCommit ignored : git.log().call()) {
+                history++;
+            }
+            assertEquals(commits.get() + 1, history);
+            assertEquals(created.get() - deleted.get() + 1, git.branchList().call().size());
+            assertEquals(Constants.R_HEADS + "master", git.getRepository().getFullBranch());
+        }
+    }
+
+    private String writeVersionFile(int module) throws IOException {
+        String path = "module-" + module + "/version.txt";
+        File file = new File(root, path);
+        Files.createDirectories(file.getParentFile().toPath());
+        Files.write(file.toPath(), ("1.0." + module + "\n").getBytes(StandardCharsets.UTF_8));
+        return path;
+    }
+}
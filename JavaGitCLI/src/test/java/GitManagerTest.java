@@ -0,0 +1,68 @@
+import org.eclipse.jgit.api.Git;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GitManagerTest {
+
+    @TempDir
+    File root;
+
+    private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+    private PrintStream out;
+    private GitManager manager;
+
+    @BeforeEach
+    void setUp() {
+        out = System.out;
+        System.setOut(new PrintStream(output, true));
+    }
+
+    @AfterEach
+    void tearDown() {
+        System.setOut(out);
+        if (manager != null) manager.shutdown();
+    }
+
+    @Test
+    void plainDirectoryIsNotARepository() throws Exception {
+        Files.write(new File(root, "file.txt").toPath(), "content\n".getBytes(StandardCharsets.UTF_8));
+        manager = open(root);
+
+        manager.showStatus();
+        manager.addFiles(new String[]{"."});
+
+        String printed = output.toString(StandardCharsets.UTF_8);
+        assertEquals(2, printed.split("Not in a git repository", -1).length - 1);
+        assertFalse(new File(root, ".git").exists());
+    }
+
+    @Test
+    void followsGitFile() throws Exception {
+        File gitDir = new File(root, "separate.git");
+        File workTree = new File(root, "work");
+        try (Git ignored = Git.init().setGitDir(gitDir).setDirectory(workTree).setInitialBranch("main").call()) {
+            // Git.init writes the ".git" file pointing at gitDir
+        }
+        manager = open(workTree);
+
+        manager.showStatus();
+
+        assertTrue(output.toString(StandardCharsets.UTF_8).contains("Branch: main"));
+    }
+
+    private GitManager open(File directory) {
+        return new GitManager(new ScopeManager(new File(root, "scopes").getPath()), directory);
+    }
+}
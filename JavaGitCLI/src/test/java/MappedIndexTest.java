@@ -0,0 +1,202 @@
+import org.eclipse.jgit.dircache.DirCache;
+import org.eclipse.jgit.dircache.DirCacheBuilder;
+import org.eclipse.jgit.dircache.DirCacheEntry;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.util.FS;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MappedIndexTest {
+
+    @TempDir
+    Path temp;
+
+    @Test
+    void matchesDirCache() throws IOException {
+        String longPath = "deep/" + "x".repeat(5000) + ".txt";
+        File indexFile = writeIndex(
+                entry("README.md", FileMode.REGULAR_FILE, 0),
+                entry("bin/run.sh", FileMode.EXECUTABLE_FILE, 0),
+                entry("src/a/Main.java", FileMode.REGULAR_FILE, 0),
+                entry("src/a/Util.java", FileMode.REGULAR_FILE, 0),
+                entry("src/b/conflict.txt", FileMode.REGULAR_FILE, 1),
+                entry("src/b/conflict.txt", FileMode.REGULAR_FILE, 2),
+                entry("src/b/link", FileMode.SYMLINK, 0),
+                entry(longPath, FileMode.REGULAR_FILE, 0));
+
+        DirCache expected = DirCache.read(indexFile, FS.DETECTED);
+        MappedIndex index = MappedIndex.open(indexFile);
+        assertNotNull(index);
+        assertEquals(expected.getEntryCount(), index.getEntryCount());
+
+        MappedIndex.Entry entry = index.newEntry();
+        for (int i = 0; i < expected.getEntryCount(); i++) {
+            DirCacheEntry jgit = expected.getEntry(i);
+            entry.moveTo(i);
+            assertEquals(jgit.getPathString(), entry.getPath());
+            assertEquals(jgit.getObjectId(), entry.getObjectId());
+            assertEquals(jgit.getRawMode(), entry.getRawMode());
+            assertEquals(jgit.getStage(), entry.getStage());
+            assertEquals(jgit.getLength(), entry.getLength());
+        }
+
+        assertEquals(expected.findEntry("src/b/conflict.txt"), index.findPrefix("src/b/conflict.txt"));
+        assertEquals(expected.findEntry(longPath), index.findPrefix(longPath));
+        assertEquals(index.getEntryCount(), index.findPrefix("src/missing"));
+
+        int first = index.findPrefix("src/a/");
+        assertEquals("src/a/Main.java", entry.moveTo(first).getPath());
+        assertTrue(index.startsWith(first + 1, "src/a/"));
+        assertFalse(index.startsWith(first + 2, "src/a/"));
+    }
+
+    @Test
+    void readsExtendedEntries() throws IOException {
+        // JGit never writes extended flags, so build a version 3 index by hand
+        String[] paths = {"a/plain.txt", "a/skipped.txt", "b.txt"};
+        ByteArrayOutputStream raw = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(raw);
+        out.writeInt(0x44495243);
+        out.writeInt(3);
+        out.writeInt(paths.length);
+        for (int i = 0; i < paths.length; i++) {
+            boolean extended = i == 1;
+            byte[] name = paths[i].getBytes(StandardCharsets.UTF_8);
+            out.write(new byte[24]);
+            out.writeInt(FileMode.REGULAR_FILE.getBits());
+            out.write(new byte[8]);
+            out.writeInt(i + 1);
+            out.write(idBytes(i + 1));
+            out.writeShort((extended ? 0x4000 : 0) | name.length);
+            if (extended) {
+                out.writeShort(0x4000); // skip-worktree
+            }
+            out.write(name);
+            int length = 62 + (extended ? 2 : 0) + name.length;
+            out.write(new byte[((length + 8) & ~7) - length]);
+        }
+        out.flush();
+        byte[] body = raw.toByteArray();
+        out.write(Constants.newMessageDigest().digest(body));
+        File indexFile = temp.resolve("index").toFile();
+        Files.write(indexFile.toPath(), raw.toByteArray());
+
+        DirCache expected = DirCache.read(indexFile, FS.DETECTED);
+        assertTrue(expected.getEntry(1).isSkipWorkTree());
+
+        MappedIndex index = MappedIndex.open(indexFile);
+        assertNotNull(index);
+        assertEquals(3, index.getVersion());
+        MappedIndex.Entry entry = index.newEntry();
+        for (int i = 0; i < paths.length; i++) {
+            entry.moveTo(i);
+            assertEquals(expected.getEntry(i).getPathString(), entry.getPath());
+            assertEquals(expected.getEntry(i).getObjectId(), entry.getObjectId());
+            assertEquals(expected.getEntry(i).getLength(), entry.getLength());
+        }
+        assertEquals(2, index.findPrefix("b.txt"));
+    }
+
+    @Test
+    void declinesVersionFour() throws IOException {
+        File indexFile = writeIndex(entry("a.txt", FileMode.REGULAR_FILE, 0));
+        byte[] bytes = Files.readAllBytes(indexFile.toPath());
+        ByteBuffer.wrap(bytes).putInt(4, 4);
+        Files.write(indexFile.toPath(), bytes);
+
+        assertNull(MappedIndex.open(indexFile));
+    }
+
+    @Test
+    void rejectsSplitIndex() throws IOException {
+        File indexFile = writeIndex(entry("a.txt", FileMode.REGULAR_FILE, 0));
+        byte[] bytes = Files.readAllBytes(indexFile.toPath());
+        int end = bytes.length - 20;
+
+        ByteBuffer linked = ByteBuffer.allocate(end + 8 + 20 + 20);
+        linked.put(bytes, 0, end);
+        linked.put("link".getBytes(StandardCharsets.US_ASCII));
+        linked.putInt(20);
+        linked.put(new byte[20]);
+        linked.put(new byte[20]);
+        Files.write(indexFile.toPath(), linked.array());
+
+        IOException error = assertThrows(IOException.class, () -> MappedIndex.open(indexFile));
+        assertTrue(error.getMessage().contains("'link'"));
+    }
+
+    @Test
+    void rejectsCorruptEntryCount() throws IOException {
+        File indexFile = writeIndex(entry("a.txt", FileMode.REGULAR_FILE, 0));
+        byte[] bytes = Files.readAllBytes(indexFile.toPath());
+        ByteBuffer.wrap(bytes).putInt(8, Integer.MAX_VALUE);
+        Files.write(indexFile.toPath(), bytes);
+        assertThrows(IOException.class, () -> MappedIndex.open(indexFile));
+
+        ByteBuffer.wrap(bytes).putInt(8, -1);
+        Files.write(indexFile.toPath(), bytes);
+        assertThrows(IOException.class, () -> MappedIndex.open(indexFile));
+    }
+
+    @Test
+    void rejectsUnterminatedLongName() throws IOException {
+        String longPath = "y".repeat(5000);
+        File indexFile = writeIndex(entry(longPath, FileMode.REGULAR_FILE, 0));
+        byte[] bytes = Files.readAllBytes(indexFile.toPath());
+        // Overwrite the terminating NUL and padding up to the trailer
+        Arrays.fill(bytes, 12 + 62 + longPath.length(), bytes.length - 20, (byte) 'y');
+        Files.write(indexFile.toPath(), bytes);
+
+        assertThrows(IOException.class, () -> MappedIndex.open(indexFile));
+    }
+
+    private File writeIndex(DirCacheEntry... entries) throws IOException {
+        File indexFile = temp.resolve("index").toFile();
+        DirCache cache = DirCache.lock(indexFile, FS.DETECTED);
+        try {
+            DirCacheBuilder builder = cache.builder();
+            Arrays.stream(entries).forEach(builder::add);
+            builder.finish();
+            cache.write();
+            cache.commit();
+        } finally {
+            cache.unlock();
+        }
+        return indexFile;
+    }
+
+    private byte[] idBytes(int value) {
+        byte[] id = new byte[Constants.OBJECT_ID_LENGTH];
+        ObjectId.fromString(String.format("%040x", value)).copyRawTo(id, 0);
+        return id;
+    }
+
+    private DirCacheEntry entry(String path, FileMode mode, int stage) {
+        DirCacheEntry entry = new DirCacheEntry(path, stage);
+        entry.setFileMode(mode);
+        entry.setObjectId(ObjectId.fromString(String.format("%040x", path.hashCode() & 0xffffffffL)));
+        entry.setLength(path.length());
+        entry.setLastModified(Instant.ofEpochSecond(1_700_000_000L));
+        return entry;
+    }
+}
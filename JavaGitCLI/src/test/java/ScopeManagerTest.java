@@ -0,0 +1,50 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ScopeManagerTest {
+
+    @TempDir
+    File root;
+
+    @Test
+    void normalizesPrefixesAndRepositoryKeys() {
+        ScopeManager scopes = new ScopeManager(new File(root, "scopes").getPath());
+        String repository = new File(root, "repo").getPath();
+
+        scopes.setScope(repository + "/.", Arrays.asList("./src/", "src", "docs//api/./", "lib\\\\core"));
+
+        assertEquals(Arrays.asList("src", "docs/api", "lib/core"), scopes.getScope(repository + "/"));
+    }
+
+    @Test
+    void rootPrefixClearsScope() {
+        ScopeManager scopes = new ScopeManager(new File(root, "scopes").getPath());
+        String repository = new File(root, "repo").getPath();
+        scopes.setScope(repository, Collections.singletonList("src"));
+
+        scopes.setScope(repository, Arrays.asList("src", "."));
+
+        assertTrue(scopes.getScope(repository).isEmpty());
+    }
+
+    @Test
+    void rejectsPathsOutsideTheRepository() {
+        ScopeManager scopes = new ScopeManager(new File(root, "scopes").getPath());
+        String repository = new File(root, "repo").getPath();
+        scopes.setScope(repository, Collections.singletonList("src"));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> scopes.setScope(repository, Collections.singletonList("src/../../etc")));
+        assertThrows(IllegalArgumentException.class,
+                () -> scopes.setScope(repository, Collections.singletonList("/etc")));
+        assertEquals(Collections.singletonList("src"), scopes.getScope(repository));
+    }
+}